@@ -0,0 +1,47 @@
+#!/usr/bin/env bash
+# Compares startup time and peak RSS of the web application and the headless batch CLI,
+# with and without an AppCDS archive for the CLI.
+#
+# Usage: scripts/cli-startup-benchmark.sh <directory-to-scan>
+# Needs python3 (for elapsed time and peak RSS of each run) and JDK 21.
+set -euo pipefail
+
+SCAN_DIR=${1:?usage: $0 <directory-to-scan>}
+CLI=com.example.DuplicateFinder.DuplicateFinderCli
+WORK=target/cli-benchmark
+
+# The wrapper needs .mvn/wrapper, which is not checked in; prefer an installed Maven.
+if command -v mvn > /dev/null; then MVN=mvn; else MVN="sh mvnw"; fi
+$MVN -q -DskipTests package
+JAR=$(ls target/DuplicateFinder-*.jar | grep -v -- '-plain' | head -n 1)
+
+# CDS needs a plain class path of jars, so use the extracted layout rather than the nested fat jar.
+rm -rf "$WORK"
+java -Djarmode=tools -jar "$JAR" extract --destination "$WORK"
+APP="$WORK/$(basename "$JAR")"
+
+# Training run: stop right after the context is refreshed and dump the loaded classes into the archive.
+# -Xlog:cds=off hides the warnings about classes (proxies, excluded loggers) that cannot be archived.
+java -XX:ArchiveClassesAtExit="$WORK/cli.jsa" -Xlog:cds=off -Dspring.context.exit=onRefresh \
+    -cp "$APP" "$CLI" --path="$SCAN_DIR" --output=/dev/null
+
+# Runs a command and prints its wall time and peak RSS (ru_maxrss of the child, in KB on Linux).
+measure() {
+    python3 - "$@" <<'PY'
+import os, subprocess, sys, time
+label, command = sys.argv[1], sys.argv[2:]
+start = time.monotonic()
+child = subprocess.Popen(command, stdout=subprocess.DEVNULL)
+_, status, usage = os.wait4(child.pid, 0)
+print(f"{label}: {time.monotonic() - start:.2f} s elapsed, {usage.ru_maxrss} KB peak RSS, exit {os.waitstatus_to_exitcode(status)}")
+PY
+}
+
+echo "Startup only (exit after context refresh):"
+measure "  web     " java -Dspring.context.exit=onRefresh -jar "$APP"
+measure "  cli     " java -Dspring.context.exit=onRefresh -cp "$APP" "$CLI" --path="$SCAN_DIR"
+measure "  cli+cds " java -XX:SharedArchiveFile="$WORK/cli.jsa" -Dspring.context.exit=onRefresh -cp "$APP" "$CLI" --path="$SCAN_DIR"
+
+echo "Full scan of $SCAN_DIR:"
+measure "  cli     " java -cp "$APP" "$CLI" --path="$SCAN_DIR" --output=/dev/null
+measure "  cli+cds " java -XX:SharedArchiveFile="$WORK/cli.jsa" -cp "$APP" "$CLI" --path="$SCAN_DIR" --output=/dev/null
@@ -0,0 +1,51 @@
+package com.example.DuplicateFinder;
+
+import com.example.DuplicateFinder.cli.BatchScanRunner;
+import com.example.DuplicateFinder.service.CategorizationService;
+import com.example.DuplicateFinder.service.FileHashingService;
+import com.example.DuplicateFinder.service.ReadScheduler;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.Banner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+
+import java.util.Map;
+
+/**
+ * Headless entry point for cron-driven scans. Starts only the scanning services, with lazy bean
+ * initialization and no servlet container, security or component scan, then streams the report as
+ * newline-delimited JSON and exits.
+ * <p>
+ * Usage: {@code java -cp DuplicateFinder.jar com.example.DuplicateFinder.DuplicateFinderCli --path=/data [--output=report.ndjson]}
+ * <p>
+ * This class is deliberately not a {@code @Configuration}, so the web application's component scan does not pick it up.
+ */
+@Import({FileHashingService.class, CategorizationService.class, ReadScheduler.class})
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+public class DuplicateFinderCli {
+
+    public static void main(String[] args) {
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(DuplicateFinderCli.class)
+                .web(WebApplicationType.NONE)
+                .lazyInitialization(true)
+                .bannerMode(Banner.Mode.OFF)
+                .logStartupInfo(false)
+                // The report may go to stdout, so keep log lines off the console.
+                .properties(Map.of("logging.threshold.console", "OFF"))
+                .run(args);
+        System.exit(SpringApplication.exit(context));
+    }
+
+    @Bean
+    public BatchScanRunner batchScanRunner(FileHashingService fileHashingService,
+                                           CategorizationService categorizationService,
+                                           ObjectMapper objectMapper) {
+        return new BatchScanRunner(fileHashingService, categorizationService, objectMapper);
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.DuplicateFinder.cli;
+
+import com.example.DuplicateFinder.service.CategorizationService;
+import com.example.DuplicateFinder.service.FileHashInfo;
+import com.example.DuplicateFinder.service.FileHashingService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.ExitCodeGenerator;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs one EXACT scan for {@link com.example.DuplicateFinder.DuplicateFinderCli} and streams the result as
+ * newline-delimited JSON: one {@code duplicateGroup} record per group, one {@code category} record per
+ * category and a closing {@code summary} record. Records are written as they are produced rather than
+ * collected into one document.
+ * <p>
+ * Exit codes: 0 on success, 1 on an I/O error, 2 on invalid arguments.
+ */
+public class BatchScanRunner implements ApplicationRunner, ExitCodeGenerator {
+    private static final Logger logger = LoggerFactory.getLogger(BatchScanRunner.class);
+
+    private final FileHashingService fileHashingService;
+    private final CategorizationService categorizationService;
+    private final ObjectMapper objectMapper;
+    private int exitCode;
+
+    public BatchScanRunner(FileHashingService fileHashingService, CategorizationService categorizationService,
+                           ObjectMapper objectMapper) {
+        this.fileHashingService = fileHashingService;
+        this.categorizationService = categorizationService;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        String path = single(args, "path");
+        String output = args.containsOption("output") ? single(args, "output") : "-";
+        if (path == null || !Files.isDirectory(Paths.get(path))) {
+            System.err.println("Usage: --path=<directory> [--output=<file>|-]");
+            exitCode = 2;
+            return;
+        }
+
+        long started = System.nanoTime();
+        try (OutputStream out = "-".equals(output)
+                ? new BufferedOutputStream(System.out)
+                : new BufferedOutputStream(Files.newOutputStream(Paths.get(output)));
+             JsonGenerator json = objectMapper.getFactory().createGenerator(out)) {
+            json.setRootValueSeparator(null);
+            json.configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+
+            List<FileHashInfo> allFiles = fileHashingService.scanAndHashFiles(path);
+            Map<String, List<FileHashInfo>> duplicates = fileHashingService.findDuplicates(allFiles);
+
+            long reclaimableBytes = 0;
+            for (Map.Entry<String, List<FileHashInfo>> group : duplicates.entrySet()) {
+                long size = group.getValue().get(0).getSize();
+                reclaimableBytes += size * (group.getValue().size() - 1);
+                json.writeStartObject();
+                json.writeStringField("type", "duplicateGroup");
+                json.writeStringField("hash", group.getKey());
+                json.writeNumberField("size", size);
+                json.writeArrayFieldStart("files");
+                for (FileHashInfo file : group.getValue()) {
+                    json.writeString(file.getPath());
+                }
+                json.writeEndArray();
+                json.writeEndObject();
+                json.writeRaw('\n');
+            }
+
+            for (Map.Entry<String, List<String>> category : categorizationService.categorize(allFiles).entrySet()) {
+                json.writeStartObject();
+                json.writeStringField("type", "category");
+                json.writeStringField("category", category.getKey());
+                json.writeObjectField("files", category.getValue());
+                json.writeEndObject();
+                json.writeRaw('\n');
+            }
+
+            json.writeStartObject();
+            json.writeStringField("type", "summary");
+            json.writeStringField("path", path);
+            json.writeNumberField("files", allFiles.size());
+            json.writeNumberField("duplicateGroups", duplicates.size());
+            json.writeNumberField("reclaimableBytes", reclaimableBytes);
+            json.writeNumberField("elapsedMillis", (System.nanoTime() - started) / 1_000_000);
+            json.writeEndObject();
+            json.writeRaw('\n');
+        } catch (IOException e) {
+            logger.error("Batch scan of {} failed: {}", path, e.getMessage());
+            System.err.println("Failed to scan directory: " + e.getMessage());
+            exitCode = 1;
+        }
+    }
+
+    @Override
+    public int getExitCode() {
+        return exitCode;
+    }
+
+    private static String single(ApplicationArguments args, String name) {
+        List<String> values = args.getOptionValues(name);
+        return values == null || values.isEmpty() ? null : values.get(0);
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.DuplicateFinder.controller;
+
+import com.example.DuplicateFinder.dto.DirectoryRollup;
+import com.example.DuplicateFinder.service.AnalyticsReport;
+import com.example.DuplicateFinder.service.AnalyticsService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+
+// Serves the aggregates collected during the latest EXACT scan of a directory; nothing here walks the files again.
+// Reports of scans that stopped early are served as well, marked with the X-Scan-Truncated header.
+@RestController
+@RequestMapping("/api/analytics")
+@CrossOrigin(origins = "http://localhost:5173", exposedHeaders = AnalyticsController.TRUNCATED_HEADER)
+public class AnalyticsController {
+
+    static final String TRUNCATED_HEADER = "X-Scan-Truncated";
+
+    @Autowired
+    private AnalyticsService analyticsService;
+
+    @GetMapping("/largest-files")
+    public ResponseEntity<?> getLargestFiles(@RequestParam String path) {
+        AnalyticsReport report = analyticsService.getReport(path);
+        return report == null ? ResponseEntity.notFound().build() : ok(report, report.getLargestFiles());
+    }
+
+    @GetMapping("/largest-duplicate-groups")
+    public ResponseEntity<?> getLargestDuplicateGroups(@RequestParam String path) {
+        AnalyticsReport report = analyticsService.getReport(path);
+        return report == null ? ResponseEntity.notFound().build() : ok(report, report.getLargestDuplicateGroups());
+    }
+
+    @GetMapping("/largest-directories")
+    public ResponseEntity<?> getLargestDirectories(@RequestParam String path) {
+        AnalyticsReport report = analyticsService.getReport(path);
+        if (report == null) {
+            return ResponseEntity.notFound().build();
+        }
+        Map<String, Object> response = new HashMap<>();
+        response.put("bySize", report.getLargestDirectories());
+        response.put("byReclaimable", report.getMostReclaimableDirectories());
+        return ok(report, response);
+    }
+
+    @GetMapping("/histograms")
+    public ResponseEntity<?> getHistograms(@RequestParam String path) {
+        AnalyticsReport report = analyticsService.getReport(path);
+        if (report == null) {
+            return ResponseEntity.notFound().build();
+        }
+        Map<String, Object> response = new HashMap<>();
+        response.put("sizes", report.getSizeHistogram());
+        response.put("extensions", report.getExtensionHistogram());
+        return ok(report, response);
+    }
+
+    // Rolled-up totals of one directory (the scanned root by default) and of its immediate subdirectories.
+    @GetMapping("/directories")
+    public ResponseEntity<?> getDirectory(@RequestParam String path, @RequestParam(required = false) String dir) {
+        AnalyticsReport report = analyticsService.getReport(path);
+        if (report == null) {
+            return ResponseEntity.notFound().build();
+        }
+        String directory = dir == null ? report.getRoot() : Paths.get(dir).toAbsolutePath().normalize().toString();
+        DirectoryRollup rollup = report.getRollup(directory);
+        if (rollup == null) {
+            return ResponseEntity.notFound().build();
+        }
+        Map<String, Object> response = new HashMap<>();
+        response.put("directory", rollup);
+        response.put("children", report.getChildren(directory));
+        return ok(report, response);
+    }
+
+    private static ResponseEntity<?> ok(AnalyticsReport report, Object body) {
+        return ResponseEntity.ok().header(TRUNCATED_HEADER, String.valueOf(report.isTruncated())).body(body);
+    }
+}
@@ -1,21 +1,30 @@
 package com.example.DuplicateFinder.controller;
 
+import com.example.DuplicateFinder.dto.ChunkScanResult;
 import com.example.DuplicateFinder.dto.DeleteRequest;
+import com.example.DuplicateFinder.dto.DirectoryDuplicateGroup;
 import com.example.DuplicateFinder.dto.ReportEntry;
+import com.example.DuplicateFinder.dto.SnapshotSummary;
+import com.example.DuplicateFinder.dto.WatchUpdate;
 import com.example.DuplicateFinder.service.*;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @RestController
 @RequestMapping("/api")
@@ -31,6 +40,33 @@ public class ScanController {
     @Autowired
     private ReportService reportService;
 
+    @Autowired
+    private DirectoryWatchService directoryWatchService;
+
+    @Autowired
+    private ChunkingService chunkingService;
+
+    @Autowired
+    private DirectoryHashingService directoryHashingService;
+
+    @Autowired
+    private ScanResourceGovernor scanResourceGovernor;
+
+    @Autowired
+    private SnapshotService snapshotService;
+
+    @Autowired
+    private ArchiveScanService archiveScanService;
+
+    @Autowired
+    private ImageHashingService imageHashingService;
+
+    @Autowired
+    private AnalyticsService analyticsService;
+
+    @Autowired
+    private FileNameClusteringService fileNameClusteringService;
+
     @PostMapping("/scan")
     public ResponseEntity<?> scanDirectory(@RequestBody Map<String, String> payload) {
         String path = payload.get("path");
@@ -40,42 +76,164 @@ public class ScanController {
             return ResponseEntity.badRequest().body("Invalid or non-existent directory path provided.");
         }
 
-        try {
+        // The budget is released when the response has been built.
+        try (ScanBudget budget = scanResourceGovernor.admit(path)) {
             Map<String, Object> response = new HashMap<>();
             List<FileHashInfo> allFiles;
             Object duplicatesResult;
+            // Set by the scan types whose hashes are content digests; only those are kept as snapshots.
+            String snapshotType = null;
 
             if ("FUZZY".equalsIgnoreCase(scanType)) {
-                allFiles = fileHashingService.scanAndGetFileContent(path);
+                allFiles = fileHashingService.scanAndGetFileContent(path, budget);
                 int threshold = 50;
                 duplicatesResult = fileHashingService.findSimilarFilesByLevenshtein(allFiles, threshold);
+            } else if ("IMAGE".equalsIgnoreCase(scanType)) {
+                allFiles = imageHashingService.scanAndHashImages(path, budget);
+                int maxDistance = Integer.parseInt(payload.getOrDefault("maxDistance", "10"));
+                duplicatesResult = imageHashingService.findSimilarImages(allFiles, maxDistance);
+            } else if ("NAME".equalsIgnoreCase(scanType)) {
+                // Only names are compared; "crossCheck" (SIZE or PARTIAL) optionally confirms clusters by size or first 4 KB.
+                allFiles = fileHashingService.scanFileNames(path, budget);
+                double minSimilarity = Double.parseDouble(payload.getOrDefault("minSimilarity", "0.6"));
+                FileNameClusteringService.CrossCheck crossCheck = FileNameClusteringService.CrossCheck.valueOf(
+                        payload.getOrDefault("crossCheck", "NONE").toUpperCase());
+                duplicatesResult = fileNameClusteringService.findSimilarNames(allFiles, minSimilarity, crossCheck);
+            } else if ("COMPARE".equalsIgnoreCase(scanType)) {
+                // Same-size files are compared byte by byte; only large same-size groups are hashed. Compared files
+                // keep an empty hash, which a snapshot could not tell apart from unread files, so no snapshot is saved.
+                allFiles = fileHashingService.scanFileNames(path, budget);
+                duplicatesResult = new ArrayList<>(fileHashingService.findDuplicatesByComparison(allFiles).values());
+            } else if ("CHUNK".equalsIgnoreCase(scanType)) {
+                ChunkScanResult chunkResult = chunkingService.scanAndChunkFiles(path, budget);
+                allFiles = chunkResult.getFiles();
+                duplicatesResult = new ArrayList<>(fileHashingService.findDuplicates(allFiles).values());
+                response.put("partialDuplicates", chunkResult.getOverlaps());
+                response.put("directoryReclaim", chunkResult.getDirectories());
+                response.put("reclaimableBytes", chunkResult.getReclaimableBytes());
+                snapshotType = "CHUNK";
             } else { // Default to "EXACT"
-                allFiles = fileHashingService.scanAndHashFiles(path);
+                snapshotType = "EXACT";
+                ScanAnalytics analytics = analyticsService.startScan(path);
+                List<FileHashInfo> regularFiles = fileHashingService.scanAndHashFiles(path, budget, analytics);
+                allFiles = regularFiles;
+                if (Boolean.parseBoolean(payload.get("includeArchives"))) {
+                    // Opt-in: entries of zip/jar/tar archives take part as virtual paths like "outer.jar!/lib/x.jar".
+                    // Entries that were never read carry a placeholder hash, which snapshots store as "no digest".
+                    allFiles = new ArrayList<>(regularFiles);
+                    allFiles.addAll(archiveScanService.scanArchives(regularFiles, budget));
+                }
                 Map<String, List<FileHashInfo>> duplicates = fileHashingService.findDuplicates(allFiles);
-                duplicatesResult = new ArrayList<>(duplicates.values());
+                analytics.recordDuplicates(duplicates);
+                analyticsService.publish(analytics, budget.isTruncated());
+                // Whole copied folders are reported once and their per-file groups are left out. A truncated walk
+                // leaves directories half-listed, which must never be offered for deletion as copies.
+                List<DirectoryDuplicateGroup> duplicateDirectories = budget.isTruncated()
+                        ? Collections.emptyList()
+                        : directoryHashingService.findDuplicateDirectories(path, regularFiles);
+                duplicatesResult = directoryHashingService.suppressCoveredGroups(duplicates.values(), duplicateDirectories);
+                response.put("duplicateDirectories", duplicateDirectories);
             }
 
+            Map<String, List<String>> categorizedApps = categorizationService.categorize(allFiles);
             response.put("duplicates", duplicatesResult);
-            response.put("categorizedApps", categorizationService.categorize(allFiles));
+            response.put("categorizedApps", categorizedApps);
             response.put("emptyFolders", new ArrayList<>());
 
+            // Partial results would show up as mass deletions in later diffs, so only complete scans are kept.
+            if (snapshotType != null && !budget.isTruncated()) {
+                try {
+                    response.put("snapshotId", snapshotService.saveSnapshot(path, snapshotType, allFiles, categorizedApps));
+                } catch (IOException e) {
+                    System.err.println("Failed to save scan snapshot for '" + path + "'. Reason: " + e.getMessage());
+                }
+            }
+            response.put("degraded", budget.isDegraded());
+            response.put("truncated", budget.isTruncated());
+
             return ResponseEntity.ok(response);
+        } catch (ScanRejectedException e) {
+            return ResponseEntity.status(503).body("Scan rejected: " + e.getMessage());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body("Invalid scan option: " + e.getMessage());
         } catch (IOException e) {
             e.printStackTrace();
             return ResponseEntity.status(500).body("Failed to scan directory: " + e.getMessage());
         }
     }
 
+    @PostMapping("/watch")
+    public ResponseEntity<?> startWatching(@RequestBody Map<String, String> payload) {
+        String path = payload.get("path");
+        if (path == null || path.trim().isEmpty() || !new File(path).isDirectory()) {
+            return ResponseEntity.badRequest().body("Invalid or non-existent directory path provided.");
+        }
+
+        try {
+            Map<String, Object> response = directoryWatchService.startWatching(path);
+            reportService.addReportEntry("Watch", "Started watching directory: " + path);
+            return ResponseEntity.ok(response);
+        } catch (ScanRejectedException e) {
+            return ResponseEntity.status(503).body("Watch rejected: " + e.getMessage());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (IOException e) {
+            e.printStackTrace();
+            return ResponseEntity.status(500).body("Failed to watch directory: " + e.getMessage());
+        }
+    }
+
+    @GetMapping("/watch")
+    public ResponseEntity<?> getWatchedState(@RequestParam String path) {
+        Map<String, Object> state = directoryWatchService.getCurrentState(path);
+        if (state == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(state);
+    }
+
+    @DeleteMapping("/watch")
+    public ResponseEntity<?> stopWatching(@RequestParam String path) {
+        if (!directoryWatchService.stopWatching(path)) {
+            return ResponseEntity.notFound().build();
+        }
+        reportService.addReportEntry("Watch", "Stopped watching directory: " + path);
+        return ResponseEntity.ok("Stopped watching " + path);
+    }
+
+    // Streams a WatchUpdate event for every change detected under a watched directory.
+    @GetMapping(value = "/watch/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<?> watchEvents(@RequestParam String path) {
+        SseEmitter emitter = new SseEmitter(0L);
+        Consumer<WatchUpdate> subscriber = update -> {
+            try {
+                emitter.send(SseEmitter.event().name("update").data(update));
+            } catch (IOException e) {
+                throw new IllegalStateException("Subscriber disconnected", e);
+            }
+        };
+        if (!directoryWatchService.subscribe(path, subscriber)) {
+            return ResponseEntity.notFound().build();
+        }
+        emitter.onCompletion(() -> directoryWatchService.unsubscribe(path, subscriber));
+        emitter.onTimeout(() -> directoryWatchService.unsubscribe(path, subscriber));
+        emitter.onError(e -> directoryWatchService.unsubscribe(path, subscriber));
+        return ResponseEntity.ok(emitter);
+    }
+
     @PostMapping("/delete-files")
     public ResponseEntity<?> deleteFiles(@RequestBody Map<String, Object> payload) {
         String basePath = (String) payload.get("basePath");
-        List<String> filesToDelete = (List<String>) payload.get("filesToDelete");
+        List<String> filesToDelete = (List<String>) payload.getOrDefault("filesToDelete", Collections.emptyList());
+        List<Object> directoriesToDelete = (List<Object>) payload.getOrDefault("directoriesToDelete", Collections.emptyList());
 
-        if (basePath == null || filesToDelete == null || filesToDelete.isEmpty()) {
-            return ResponseEntity.badRequest().body("Invalid request. 'basePath' and 'filesToDelete' are required.");
+        if (basePath == null || filesToDelete == null || directoriesToDelete == null
+                || (filesToDelete.isEmpty() && directoriesToDelete.isEmpty())) {
+            return ResponseEntity.badRequest().body("Invalid request. 'basePath' and 'filesToDelete' or 'directoriesToDelete' are required.");
         }
 
         List<String> deletedFiles = new ArrayList<>();
+        List<String> deletedDirectories = new ArrayList<>();
         List<String> failedFiles = new ArrayList<>();
 
         Path safeBasePath;
@@ -108,8 +266,48 @@ public class ScanController {
             }
         }
 
+        // Duplicate directory groups are deleted as whole subtrees rather than file by file. Each entry names the
+        // hash of the group it was reported in, and the directory is hashed again first: anything added or changed
+        // since the scan would otherwise be deleted along with the copy.
+        for (Object requested : directoriesToDelete) {
+            if (!(requested instanceof Map<?, ?> directory) || !(directory.get("path") instanceof String pathString)
+                    || !(directory.get("hash") instanceof String expectedHash)) {
+                failedFiles.add(requested + " (Both 'path' and 'hash' of the directory group are required)");
+                continue;
+            }
+            try {
+                Path directoryToDelete = Paths.get(pathString).toAbsolutePath().normalize();
+
+                if (!directoryToDelete.startsWith(safeBasePath) || directoryToDelete.equals(safeBasePath)) {
+                    failedFiles.add(pathString + " (Security error: Path is outside the allowed directory)");
+                    continue;
+                }
+
+                if (!Files.isDirectory(directoryToDelete, LinkOption.NOFOLLOW_LINKS)) {
+                    failedFiles.add(pathString + " (Directory not found)");
+                    continue;
+                }
+                if (!expectedHash.equals(directoryHashingService.currentHash(directoryToDelete))) {
+                    failedFiles.add(pathString + " (Content changed since the scan)");
+                    continue;
+                }
+                try (Stream<Path> entries = Files.walk(directoryToDelete)) {
+                    for (Path entry : entries.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                        Files.delete(entry);
+                    }
+                }
+                deletedDirectories.add(pathString);
+            } catch (IOException e) {
+                failedFiles.add(pathString + " (Error: " + e.getMessage() + ")");
+                System.err.println("Failed to delete directory '" + pathString + "'. Reason: " + e.getMessage());
+            } catch (Exception e) {
+                failedFiles.add(pathString + " (Invalid path format)");
+            }
+        }
+
         Map<String, Object> response = new HashMap<>();
         response.put("deleted", deletedFiles);
+        response.put("deletedDirectories", deletedDirectories);
         response.put("failed", failedFiles);
         if (!failedFiles.isEmpty()) {
             response.put("message", "Some files could not be deleted.");
@@ -368,6 +566,29 @@ public class ScanController {
 //    reportService.addReportEntry("Deletion", "Successfully deleted " + deletedFiles.size() + " files.");
 //    return ResponseEntity.ok(response);
 //}
+    @GetMapping("/snapshots")
+    public ResponseEntity<?> getSnapshots(@RequestParam(required = false) String path) {
+        try {
+            List<SnapshotSummary> snapshots = snapshotService.listSnapshots(path);
+            return ResponseEntity.ok(snapshots);
+        } catch (IOException e) {
+            return ResponseEntity.status(500).body("Failed to list snapshots: " + e.getMessage());
+        }
+    }
+
+    @GetMapping("/snapshots/diff")
+    public ResponseEntity<?> diffSnapshots(@RequestParam String from, @RequestParam String to) {
+        try {
+            return ResponseEntity.ok(snapshotService.diff(from, to));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (NoSuchFileException e) {
+            return ResponseEntity.notFound().build();
+        } catch (IOException e) {
+            return ResponseEntity.status(500).body("Failed to diff snapshots: " + e.getMessage());
+        }
+    }
+
     @GetMapping("/report")
     public ResponseEntity<List<ReportEntry>> getReport() {
         // Return the last 50 report entries as an example
@@ -0,0 +1,18 @@
+package com.example.DuplicateFinder.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Two files that share content-defined chunks. {@code sharedBytes} is what block-level dedupe
+ * could reclaim if the second file referenced the first file's chunks.
+ */
+@Data
+@AllArgsConstructor
+public class ChunkOverlap {
+    private String fileA;
+    private String fileB;
+    private long sizeA;
+    private long sizeB;
+    private long sharedBytes;
+}
@@ -0,0 +1,17 @@
+package com.example.DuplicateFinder.dto;
+
+import com.example.DuplicateFinder.service.FileHashInfo;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class ChunkScanResult {
+    private List<FileHashInfo> files;
+    private List<ChunkOverlap> overlaps;
+    private List<DirectoryReclaim> directories;
+    private long totalBytes;
+    private long reclaimableBytes;
+}
@@ -3,9 +3,12 @@ package com.example.DuplicateFinder.dto;
 import lombok.Data;
 
 import java.util.List;
+import java.util.Map;
 
 @Data
 public class DeleteRequest {
     private String basePath;
     private List<String> filesToDelete;
+    // Each entry is {"path", "hash"}: the directory and the hash of the group it was reported in.
+    private List<Map<String, String>> directoriesToDelete;
 }
@@ -0,0 +1,20 @@
+package com.example.DuplicateFinder.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Directories whose whole subtrees are identical. The first directory is the copy to keep;
+ * {@code reclaimableSize} is what deleting the others would free.
+ */
+@Data
+@AllArgsConstructor
+public class DirectoryDuplicateGroup {
+    private String hash;
+    private List<String> directories;
+    private int fileCount;
+    private long totalSize;
+    private long reclaimableSize;
+}
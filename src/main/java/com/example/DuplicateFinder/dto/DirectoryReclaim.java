@@ -0,0 +1,12 @@
+package com.example.DuplicateFinder.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class DirectoryReclaim {
+    private String directory;
+    private long totalBytes;
+    private long reclaimableBytes;
+}
@@ -0,0 +1,16 @@
+package com.example.DuplicateFinder.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Totals for a directory including everything beneath it.
+ */
+@Data
+@AllArgsConstructor
+public class DirectoryRollup {
+    private String directory;
+    private long totalBytes;
+    private long fileCount;
+    private long reclaimableBytes;
+}
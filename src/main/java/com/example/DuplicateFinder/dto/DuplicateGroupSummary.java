@@ -0,0 +1,15 @@
+package com.example.DuplicateFinder.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class DuplicateGroupSummary {
+    private String hash;
+    private long size;
+    private List<String> files;
+    private long reclaimableBytes;
+}
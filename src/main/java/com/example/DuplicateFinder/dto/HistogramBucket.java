@@ -0,0 +1,12 @@
+package com.example.DuplicateFinder.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class HistogramBucket {
+    private String label;
+    private long count;
+    private long bytes;
+}
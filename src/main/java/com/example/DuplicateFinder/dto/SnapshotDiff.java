@@ -0,0 +1,24 @@
+package com.example.DuplicateFinder.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * What changed between two scan snapshots. Byte deltas are {@code to - from}.
+ */
+@Data
+@AllArgsConstructor
+public class SnapshotDiff {
+    private String from;
+    private String to;
+    private List<String> added;
+    private List<String> removed;
+    private List<String> modified;
+    private List<String> newlyDuplicated;
+    private long addedBytes;
+    private long removedBytes;
+    private long totalBytesDelta;
+    private long reclaimableBytesDelta;
+}
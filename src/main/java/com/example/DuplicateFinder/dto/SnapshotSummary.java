@@ -0,0 +1,18 @@
+package com.example.DuplicateFinder.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+public class SnapshotSummary {
+    private String id;
+    private String root;
+    private String scanType;
+    private LocalDateTime createdAt;
+    private int fileCount;
+    private long totalBytes;
+    private long reclaimableBytes;
+}
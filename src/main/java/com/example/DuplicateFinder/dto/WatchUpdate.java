@@ -0,0 +1,22 @@
+package com.example.DuplicateFinder.dto;
+
+import com.example.DuplicateFinder.service.FileHashInfo;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A diff pushed to subscribers of a watched directory. Only the groups and categories touched by
+ * the change are included; an empty group list means the hash is no longer duplicated.
+ */
+@Data
+@AllArgsConstructor
+public class WatchUpdate {
+    private String root;
+    private List<FileHashInfo> updatedFiles;
+    private List<String> removedFiles;
+    private Map<String, List<FileHashInfo>> duplicateGroups;
+    private Map<String, String> categoryChanges;
+}
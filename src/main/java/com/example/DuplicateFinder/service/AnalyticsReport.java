@@ -0,0 +1,38 @@
+package com.example.DuplicateFinder.service;
+
+import com.example.DuplicateFinder.dto.DirectoryRollup;
+import com.example.DuplicateFinder.dto.DuplicateGroupSummary;
+import com.example.DuplicateFinder.dto.HistogramBucket;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The finished, read-only analytics of one scan, produced by {@link ScanAnalytics#finish(boolean)}.
+ * When {@code truncated} is set the scan stopped early and every figure covers only the files it reached.
+ */
+@Getter
+@AllArgsConstructor
+public class AnalyticsReport {
+    private final String root;
+    private final boolean truncated;
+    private final List<FileHashInfo> largestFiles;
+    private final List<DuplicateGroupSummary> largestDuplicateGroups;
+    private final List<DirectoryRollup> largestDirectories;
+    private final List<DirectoryRollup> mostReclaimableDirectories;
+    private final List<HistogramBucket> sizeHistogram;
+    private final List<HistogramBucket> extensionHistogram;
+    private final Map<String, DirectoryRollup> rollups;
+    private final Map<String, List<DirectoryRollup>> children;
+
+    public DirectoryRollup getRollup(String directory) {
+        return rollups.get(directory);
+    }
+
+    public List<DirectoryRollup> getChildren(String directory) {
+        return children.getOrDefault(directory, Collections.emptyList());
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.DuplicateFinder.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Keeps the analytics of the most recent scan of each directory. A report holds a rollup for every
+ * directory of its tree and lives after the scan's budget is released, so only the most recently
+ * used {@code max-reports} reports are kept; older ones are evicted and their directory has to be scanned again.
+ */
+@Service
+public class AnalyticsService {
+    private final int topN;
+    private final Map<String, AnalyticsReport> reports;
+
+    public AnalyticsService(@Value("${duplicatefinder.analytics.top-n:100}") int topN,
+                            @Value("${duplicatefinder.analytics.max-reports:8}") int maxReports) {
+        this.topN = topN;
+        this.reports = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, AnalyticsReport> eldest) {
+                return size() > maxReports;
+            }
+        };
+    }
+
+    public ScanAnalytics startScan(String rootPath) {
+        return new ScanAnalytics(rootPath, topN);
+    }
+
+    /**
+     * @param truncated Whether the scan stopped early; the report is kept but flagged as partial.
+     */
+    public AnalyticsReport publish(ScanAnalytics analytics, boolean truncated) {
+        AnalyticsReport report = analytics.finish(truncated);
+        synchronized (reports) {
+            reports.put(report.getRoot(), report);
+        }
+        return report;
+    }
+
+    /**
+     * @return The latest report for the directory, or null if it has not been scanned or its report was evicted.
+     */
+    public AnalyticsReport getReport(String rootPath) {
+        synchronized (reports) {
+            return reports.get(normalize(rootPath));
+        }
+    }
+
+    static String normalize(String path) {
+        return Paths.get(path).toAbsolutePath().normalize().toString();
+    }
+}
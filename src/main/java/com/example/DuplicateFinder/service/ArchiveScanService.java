@@ -0,0 +1,286 @@
+package com.example.DuplicateFinder.service;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.BoundedInputStream;
+import org.apache.commons.io.input.CountingInputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Looks for duplicates inside zip-based archives (zip, jar, war, ear) and tar archives without extracting them.
+ * Archive entries are reported as virtual paths such as {@code outer.jar!/lib/x.jar}.
+ * <p>
+ * Entries are only hashed when they could possibly match something: the size, and for zip entries the CRC32
+ * from the central directory, serve as a free first-stage filter. Nested archives are treated as entries
+ * (the same dependency jar shipped in many fat jars is one duplicate group) and are not opened themselves.
+ */
+@Service
+public class ArchiveScanService {
+    private static final Logger logger = LoggerFactory.getLogger(ArchiveScanService.class);
+
+    private static final String ENTRY_SEPARATOR = "!/";
+    // Placeholder hash of entries that were never read; unique per entry, so it never forms a group.
+    static final String UNHASHED_PREFIX = "unhashed:";
+    private static final int TAR_BLOCK_SIZE = 512;
+    // Real long names are a few hundred bytes; a larger size is a corrupt header, not a name to buffer.
+    private static final int MAX_TAR_LONG_NAME = 64 * 1024;
+
+    private final ReadScheduler readScheduler;
+
+    public ArchiveScanService(ReadScheduler readScheduler) {
+        this.readScheduler = readScheduler;
+    }
+
+    /**
+     * Lists and, where needed, hashes the entries of every archive among the scanned files.
+     * Entries that cannot be duplicates keep an {@code unhashed:} placeholder hash that is unique to them.
+     *
+     * @param files  The regular files of the scan, already hashed.
+     * @param budget The scan's memory budget; listing stops once it refuses more entries.
+     * @return One FileHashInfo per archive entry, with the virtual path as its path.
+     */
+    public List<FileHashInfo> scanArchives(List<FileHashInfo> files, ScanBudget budget) {
+        List<Path> archives = files.stream()
+                .filter(file -> isArchive(file.getFileName()))
+                .map(file -> Paths.get(file.getPath()))
+                .collect(Collectors.toList());
+        if (archives.isEmpty()) {
+            return Collections.emptyList();
+        }
+        logger.info("Listing entries of {} archives.", archives.size());
+
+        // 1. List entries from the central directory or tar headers. Entries of unknown size are hashed right away.
+        List<ArchiveEntry> entries = new ArrayList<>();
+        for (Path archive : archives) {
+            if (budget.isTruncated()) {
+                break;
+            }
+            try {
+                walkArchive(archive, (virtualPath, size, crc, content) -> {
+                    if (!budget.reserve(ScanBudget.estimateEntry(Paths.get(virtualPath)))) {
+                        budget.markTruncated();
+                        return;
+                    }
+                    ArchiveEntry entry = new ArchiveEntry(archive, virtualPath, size, crc);
+                    if (size < 0) {
+                        try (CountingInputStream counted = new CountingInputStream(content.open())) {
+                            entry.hash = DigestUtils.sha256Hex(counted);
+                            entry.size = counted.getByteCount();
+                        }
+                    }
+                    entries.add(entry);
+                });
+            } catch (IOException | RuntimeException e) {
+                // A corrupt archive only loses its own entries; the rest of the scan goes on.
+                logger.error("Failed to list archive: {}. Reason: {}", archive, e.getMessage());
+            }
+        }
+
+        // 2. An entry needs its content hashed only if a regular file has its size, or another entry has
+        //    its size and a CRC32 that matches (or is unknown).
+        Set<Long> regularSizes = files.stream().map(FileHashInfo::getSize).collect(Collectors.toSet());
+        Map<Long, List<ArchiveEntry>> entriesBySize = entries.stream().collect(Collectors.groupingBy(entry -> entry.size));
+        Map<Path, Set<String>> toHash = new LinkedHashMap<>();
+        for (ArchiveEntry entry : entries) {
+            if (entry.hash != null) {
+                continue;
+            }
+            boolean candidate = regularSizes.contains(entry.size) || entriesBySize.get(entry.size).stream()
+                    .anyMatch(other -> other != entry && (other.crc < 0 || entry.crc < 0 || other.crc == entry.crc));
+            if (candidate) {
+                toHash.computeIfAbsent(entry.archive, k -> new HashSet<>()).add(entry.virtualPath);
+            }
+        }
+
+        // 3. Stream each archive that has candidates once more and hash just those entries.
+        Map<String, String> hashes = new HashMap<>();
+        for (Map.Entry<Path, Set<String>> archive : toHash.entrySet()) {
+            try {
+                walkArchive(archive.getKey(), (virtualPath, size, crc, content) -> {
+                    if (archive.getValue().contains(virtualPath)) {
+                        try (InputStream is = content.open()) {
+                            hashes.put(virtualPath, DigestUtils.sha256Hex(is));
+                        }
+                    }
+                });
+            } catch (IOException | RuntimeException e) {
+                logger.error("Failed to hash entries of archive: {}. Reason: {}", archive.getKey(), e.getMessage());
+            }
+        }
+
+        List<FileHashInfo> result = new ArrayList<>(entries.size());
+        for (ArchiveEntry entry : entries) {
+            String hash = entry.hash != null ? entry.hash : hashes.getOrDefault(entry.virtualPath, UNHASHED_PREFIX + entry.virtualPath);
+            String fileName = entry.virtualPath.substring(entry.virtualPath.lastIndexOf('/') + 1);
+            result.add(new FileHashInfo(entry.virtualPath, fileName, hash, entry.size, hash.length()));
+        }
+        logger.info("Archive scan completed. Found {} entries, hashed {}.", result.size(), hashes.size());
+        return result;
+    }
+
+    static boolean isArchive(String fileName) {
+        return isZipArchive(fileName) || tarCompression(fileName) != null;
+    }
+
+    private static boolean isZipArchive(String fileName) {
+        String name = fileName.toLowerCase();
+        return name.endsWith(".zip") || name.endsWith(".jar") || name.endsWith(".war") || name.endsWith(".ear");
+    }
+
+    /**
+     * @return "gz" for gzip-compressed tars, "" for plain tars, or null if the name is not a tar archive.
+     */
+    private static String tarCompression(String fileName) {
+        String name = fileName.toLowerCase();
+        if (name.endsWith(".tar.gz") || name.endsWith(".tgz")) {
+            return "gz";
+        }
+        return name.endsWith(".tar") ? "" : null;
+    }
+
+    private void walkArchive(Path archive, EntryVisitor visitor) throws IOException {
+        String fileName = archive.getFileName().toString();
+        if (isZipArchive(fileName)) {
+            walkZip(archive, visitor);
+        } else {
+            walkTar(archive, "gz".equals(tarCompression(fileName)), visitor);
+        }
+    }
+
+    private void walkZip(Path archive, EntryVisitor visitor) throws IOException {
+        try (ZipFile zip = new ZipFile(archive.toFile())) {
+            for (ZipEntry entry : Collections.list(zip.entries())) {
+                if (entry.isDirectory()) {
+                    continue;
+                }
+                visitor.visit(archive + ENTRY_SEPARATOR + entry.getName(), entry.getSize(), entry.getCrc(), () -> {
+                    readScheduler.throttle(entry.getCompressedSize());
+                    return zip.getInputStream(entry);
+                });
+            }
+        }
+    }
+
+    /**
+     * Reads ustar/GNU tar headers sequentially. Only regular file entries are visited; the visitor may read
+     * the entry's content, and whatever it leaves unread is skipped.
+     */
+    private void walkTar(Path archive, boolean gzip, EntryVisitor visitor) throws IOException {
+        try (InputStream raw = new BufferedInputStream(readScheduler.open(archive), 1 << 16);
+             InputStream in = gzip ? new GZIPInputStream(raw, 1 << 16) : raw) {
+            byte[] header = new byte[TAR_BLOCK_SIZE];
+            String longName = null;
+            while (IOUtils.read(in, header) == TAR_BLOCK_SIZE && !isZeroBlock(header)) {
+                long size = parseTarNumber(header, 124, 12);
+                long padding = (TAR_BLOCK_SIZE - size % TAR_BLOCK_SIZE) % TAR_BLOCK_SIZE;
+                char type = (char) header[156];
+
+                if (type == 'L') {
+                    // GNU long name: the data block holds the name of the next entry.
+                    if (size > MAX_TAR_LONG_NAME) {
+                        throw new IOException("Tar long name of " + size + " bytes, archive is corrupt");
+                    }
+                    longName = cString(IOUtils.toByteArray(in, size), 0, (int) size);
+                    IOUtils.skipFully(in, padding);
+                    continue;
+                }
+                String name = longName != null ? longName : tarName(header);
+                longName = null;
+
+                if (type == '0' || type == '\0') {
+                    BoundedInputStream content = new BoundedInputStream(in, size);
+                    content.setPropagateClose(false);
+                    visitor.visit(archive + ENTRY_SEPARATOR + name, size, -1L, () -> content);
+                    IOUtils.consume(content);
+                } else {
+                    IOUtils.skipFully(in, size);
+                }
+                IOUtils.skipFully(in, padding);
+            }
+        }
+    }
+
+    private static String tarName(byte[] header) {
+        String name = cString(header, 0, 100);
+        boolean ustar = new String(header, 257, 5, StandardCharsets.US_ASCII).equals("ustar");
+        String prefix = ustar ? cString(header, 345, 155) : "";
+        return prefix.isEmpty() ? name : prefix + "/" + name;
+    }
+
+    private static String cString(byte[] data, int offset, int length) {
+        int end = offset;
+        while (end < offset + length && data[end] != 0) {
+            end++;
+        }
+        return new String(data, offset, end - offset, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Parses an octal header field, or a base-256 one (high bit set) as written for entries over 8 GiB.
+     */
+    private static long parseTarNumber(byte[] header, int offset, int length) {
+        if ((header[offset] & 0x80) != 0) {
+            long value = header[offset] & 0x7f;
+            for (int i = offset + 1; i < offset + length; i++) {
+                value = (value << 8) | (header[i] & 0xff);
+            }
+            return value;
+        }
+        long value = 0;
+        for (int i = offset; i < offset + length; i++) {
+            byte b = header[i];
+            if (b >= '0' && b <= '7') {
+                value = (value << 3) + (b - '0');
+            } else if (b == 0 || (b == ' ' && value > 0)) {
+                break;
+            }
+        }
+        return value;
+    }
+
+    private static boolean isZeroBlock(byte[] block) {
+        for (byte b : block) {
+            if (b != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private interface ContentOpener {
+        InputStream open() throws IOException;
+    }
+
+    private interface EntryVisitor {
+        void visit(String virtualPath, long size, long crc, ContentOpener content) throws IOException;
+    }
+
+    private static final class ArchiveEntry {
+        private final Path archive;
+        private final String virtualPath;
+        private final long crc;
+        private long size;
+        private String hash;
+
+        private ArchiveEntry(Path archive, String virtualPath, long size, long crc) {
+            this.archive = archive;
+            this.virtualPath = virtualPath;
+            this.size = size;
+            this.crc = crc;
+        }
+    }
+}
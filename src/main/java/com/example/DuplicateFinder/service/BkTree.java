@@ -0,0 +1,104 @@
+package com.example.DuplicateFinder.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A BK-tree over 64-bit hashes with Hamming distance as the metric. Range queries only descend into
+ * children whose edge distance is within {@code maxDistance} of the query's distance to their parent
+ * (triangle inequality), so "within N bits" lookups touch a small fraction of the tree.
+ * <p>
+ * Nodes live in parallel arrays and children are kept as sibling lists, which keeps the tree at a few
+ * dozen bytes per distinct hash even for millions of entries. Not thread-safe.
+ */
+class BkTree {
+    private static final int NONE = -1;
+
+    private long[] values = new long[1024];
+    private int[] firstChild = new int[1024];
+    private int[] nextSibling = new int[1024];
+    private byte[] edgeDistance = new byte[1024];
+    private int size;
+
+    /**
+     * Adds a hash unless it is already present.
+     *
+     * @return The node id of the hash; ids are assigned in insertion order starting at 0.
+     */
+    int add(long value) {
+        if (size == 0) {
+            return newNode(value, 0);
+        }
+        int node = 0;
+        while (true) {
+            int distance = Long.bitCount(values[node] ^ value);
+            if (distance == 0) {
+                return node;
+            }
+            int child = firstChild[node];
+            while (child != NONE && edgeDistance[child] != distance) {
+                child = nextSibling[child];
+            }
+            if (child == NONE) {
+                int created = newNode(value, distance);
+                nextSibling[created] = firstChild[node];
+                firstChild[node] = created;
+                return created;
+            }
+            node = child;
+        }
+    }
+
+    /**
+     * @return The ids of all nodes within {@code maxDistance} bits of {@code value}, including an exact match.
+     */
+    List<Integer> search(long value, int maxDistance) {
+        List<Integer> matches = new ArrayList<>();
+        if (size == 0) {
+            return matches;
+        }
+        int[] stack = new int[16];
+        int top = 0;
+        stack[top++] = 0;
+        while (top > 0) {
+            int node = stack[--top];
+            int distance = Long.bitCount(values[node] ^ value);
+            if (distance <= maxDistance) {
+                matches.add(node);
+            }
+            for (int child = firstChild[node]; child != NONE; child = nextSibling[child]) {
+                if (Math.abs(edgeDistance[child] - distance) <= maxDistance) {
+                    if (top == stack.length) {
+                        stack = Arrays.copyOf(stack, top * 2);
+                    }
+                    stack[top++] = child;
+                }
+            }
+        }
+        return matches;
+    }
+
+    long value(int node) {
+        return values[node];
+    }
+
+    int size() {
+        return size;
+    }
+
+    private int newNode(long value, int distance) {
+        if (size == values.length) {
+            int capacity = size * 2;
+            values = Arrays.copyOf(values, capacity);
+            firstChild = Arrays.copyOf(firstChild, capacity);
+            nextSibling = Arrays.copyOf(nextSibling, capacity);
+            edgeDistance = Arrays.copyOf(edgeDistance, capacity);
+        }
+        values[size] = value;
+        firstChild[size] = NONE;
+        nextSibling[size] = NONE;
+        edgeDistance[size] = (byte) distance;
+        return size++;
+    }
+}
@@ -12,6 +12,7 @@ import org.springframework.stereotype.Service;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.*;
 
 //@Service
@@ -54,6 +55,7 @@ import java.util.*;
 public class CategorizationService {
 
     private static final Logger logger = LoggerFactory.getLogger(CategorizationService.class);
+    private static final String RULES_RESOURCE = "categorization-rules.json";
     private final ObjectMapper objectMapper;
     private final File rulesFile;
 
@@ -62,18 +64,36 @@ public class CategorizationService {
 
     public CategorizationService(ObjectMapper objectMapper) throws IOException {
         this.objectMapper = objectMapper;
-        this.rulesFile = new ClassPathResource("categorization-rules.json").getFile();
+        this.rulesFile = resolveRulesFile();
         this.rules = loadRules();
         logger.info("Successfully loaded {} categorization rules.", rules.size());
     }
 
+    /**
+     * Uses the rules file on the classpath when it is a plain file (IDE, mvn spring-boot:run). Inside a packaged
+     * jar it cannot be written, so saved rules go to a copy in the working directory, which is only created by
+     * {@link #saveRules(List)}. Until then the rules bundled in the jar are read, and nothing is written.
+     */
+    private static File resolveRulesFile() throws IOException {
+        ClassPathResource resource = new ClassPathResource(RULES_RESOURCE);
+        return resource.isFile() ? resource.getFile() : new File(RULES_RESOURCE);
+    }
+
     public List<CategorizationRule> loadRules() throws IOException {
-        if (!rulesFile.exists() || rulesFile.length() == 0) {
+        ClassPathResource bundled = new ClassPathResource(RULES_RESOURCE);
+        boolean saved = rulesFile.exists() && rulesFile.length() > 0;
+        if (!saved && !bundled.exists()) {
             logger.warn("Categorization rules file not found or is empty. Returning an empty list.");
             return Collections.emptyList();
         }
         try {
-            this.rules = objectMapper.readValue(rulesFile, new TypeReference<List<CategorizationRule>>() {});
+            if (saved) {
+                this.rules = objectMapper.readValue(rulesFile, new TypeReference<List<CategorizationRule>>() {});
+            } else {
+                try (InputStream is = bundled.getInputStream()) {
+                    this.rules = objectMapper.readValue(is, new TypeReference<List<CategorizationRule>>() {});
+                }
+            }
             return this.rules;
         } catch (IOException e) {
             logger.error("Failed to load categorization rules from file.", e);
@@ -100,31 +120,44 @@ public class CategorizationService {
 
         Map<String, List<String>> categorizedApps = new HashMap<>();
         for (FileHashInfo file : allFiles) {
-            if (file == null || file.getFileName() == null) {
-                continue;
-            }
-            String fileName = file.getFileName().toLowerCase();
-            logger.debug("Checking file: {}", fileName);
-
-            for (CategorizationRule rule : rules) {
-                boolean isMatch = rule.getKeywords().stream()
-                        .anyMatch(keyword -> {
-                            boolean found = fileName.contains(keyword.toLowerCase());
-                            logger.debug(" - against rule '{}' with keyword '{}': {}", rule.getCategory(), keyword, found);
-                            return found;
-                        });
-
-                if (isMatch) {
-                    categorizedApps.computeIfAbsent(rule.getCategory(), k -> new ArrayList<>()).add(file.getPath());
-                    logger.info("File '{}' categorized as '{}'.", fileName, rule.getCategory());
-                    break;
-                }
+            String category = categorizeFile(file);
+            if (category != null) {
+                categorizedApps.computeIfAbsent(category, k -> new ArrayList<>()).add(file.getPath());
             }
         }
         logger.info("Completed file categorization. Found {} categories.", categorizedApps.size());
         return categorizedApps;
     }
 
+    /**
+     * Applies the rules to a single file. Used by the bulk {@link #categorize(List)} as well as
+     * by callers that keep category buckets up to date one file at a time.
+     *
+     * @return The category of the first matching rule, or null when no rule matches.
+     */
+    public String categorizeFile(FileHashInfo file) {
+        if (rules == null || file == null || file.getFileName() == null) {
+            return null;
+        }
+        String fileName = file.getFileName().toLowerCase();
+        logger.debug("Checking file: {}", fileName);
+
+        for (CategorizationRule rule : rules) {
+            boolean isMatch = rule.getKeywords().stream()
+                    .anyMatch(keyword -> {
+                        boolean found = fileName.contains(keyword.toLowerCase());
+                        logger.debug(" - against rule '{}' with keyword '{}': {}", rule.getCategory(), keyword, found);
+                        return found;
+                    });
+
+            if (isMatch) {
+                logger.info("File '{}' categorized as '{}'.", fileName, rule.getCategory());
+                return rule.getCategory();
+            }
+        }
+        return null;
+    }
+
 
 
     //    private List<CategorizationRule> rules;
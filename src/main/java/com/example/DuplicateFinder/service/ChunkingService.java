@@ -0,0 +1,289 @@
+package com.example.DuplicateFinder.service;
+
+import com.example.DuplicateFinder.dto.ChunkOverlap;
+import com.example.DuplicateFinder.dto.ChunkScanResult;
+import com.example.DuplicateFinder.dto.DirectoryReclaim;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Finds partial duplicates by splitting every file into content-defined chunks (FastCDC with
+ * normalized chunking) and indexing the chunk digests. Unlike fixed-size blocks, chunk boundaries
+ * follow the content, so an insertion near the start of a file only changes the chunks around it.
+ */
+@Service
+public class ChunkingService {
+    private static final Logger logger = LoggerFactory.getLogger(ChunkingService.class);
+
+    private static final int MIN_CHUNK_SIZE = 2 * 1024;
+    private static final int AVG_CHUNK_SIZE = 8 * 1024;
+    private static final int MAX_CHUNK_SIZE = 64 * 1024;
+    // Masks from the FastCDC paper for an 8 KiB average: harder to match below the average, easier above it.
+    private static final long MASK_SMALL = 0x0000d9f003530000L;
+    private static final long MASK_LARGE = 0x0000d90003530000L;
+    private static final long[] GEAR = new long[256];
+
+    private static final int READ_BUFFER_SIZE = 1024 * 1024;
+    // Chunk digests are truncated SHA-256; 128 bits is plenty to identify chunks within one scan.
+    private static final int CHUNK_DIGEST_LENGTH = 16;
+    // Estimated heap per recorded chunk: the truncated digest, its wrapper and list slots.
+    private static final int CHUNK_ENTRY_BYTES = 96;
+    // Chunks shared by more files than this (zero pages, common headers) are left out of the pairwise report.
+    private static final int MAX_PAIR_FANOUT = 64;
+    private static final int MAX_REPORTED_OVERLAPS = 200;
+
+    private final ReadScheduler readScheduler;
+
+    static {
+        Random random = new Random(0x5EED_CDC1L);
+        for (int i = 0; i < GEAR.length; i++) {
+            GEAR[i] = random.nextLong();
+        }
+    }
+
+    public ChunkingService(ReadScheduler readScheduler) {
+        this.readScheduler = readScheduler;
+    }
+
+    /**
+     * Chunks every file under the directory and reports how many bytes block-level dedupe could reclaim.
+     * The returned file infos carry the full SHA-256 of each file, computed in the same pass,
+     * so they can be fed to {@link FileHashingService#findDuplicates(List)} and categorization as usual.
+     */
+    public ChunkScanResult scanAndChunkFiles(String pathString) throws IOException {
+        return scanAndChunkFiles(pathString, ScanBudget.unbounded());
+    }
+
+    /**
+     * Same as {@link #scanAndChunkFiles(String)} within a memory budget. Files whose chunk list does not fit
+     * are still hashed as a whole but contribute no chunks (index-only), and walking stops once even the
+     * file entries no longer fit.
+     */
+    public ChunkScanResult scanAndChunkFiles(String pathString, ScanBudget budget) throws IOException {
+        Path startPath = Paths.get(pathString);
+        if (!Files.isDirectory(startPath)) {
+            logger.error("Provided path is not a directory: {}", pathString);
+            return new ChunkScanResult(Collections.emptyList(), Collections.emptyList(), Collections.emptyList(), 0, 0);
+        }
+
+        logger.info("Starting chunk-level scan for directory: {}", pathString);
+        // Memory is reserved here on the walker, so a full budget slows the walk rather than the shared read pools.
+        List<Path> paths = budget.walkRegularFiles(startPath, path -> true);
+        Set<Path> keepChunks = new HashSet<>();
+        for (Path path : paths) {
+            if (budget.reserve((sizeOf(path) / AVG_CHUNK_SIZE + 1) * CHUNK_ENTRY_BYTES)) {
+                keepChunks.add(path);
+            } else {
+                budget.markDegraded();
+            }
+        }
+
+        // Files are chunked on the read scheduler's per-device pools; results come back in walk order so the index is stable.
+        List<ChunkedFile> chunkedFiles = readScheduler.schedule(paths, path -> chunkFile(path, keepChunks.contains(path)));
+
+        ChunkScanResult result = analyze(chunkedFiles);
+        logger.info("Chunk scan completed. {} files, {} bytes, {} bytes reclaimable by block-level dedupe.",
+                chunkedFiles.size(), result.getTotalBytes(), result.getReclaimableBytes());
+        return result;
+    }
+
+    private static long sizeOf(Path path) {
+        try {
+            return Files.size(path);
+        } catch (IOException e) {
+            return 0L;
+        }
+    }
+
+    /**
+     * Hashes one file and, if {@code keepChunks} is set (its chunk memory was reserved), records its chunk digests.
+     */
+    private ChunkedFile chunkFile(Path filePath, boolean keepChunks) {
+        MessageDigest fileDigest = DigestUtils.getSha256Digest();
+        MessageDigest chunkDigest = DigestUtils.getSha256Digest();
+        List<byte[]> digests = new ArrayList<>();
+        List<Integer> lengths = new ArrayList<>();
+        byte[] buffer = new byte[READ_BUFFER_SIZE];
+        int start = 0;
+        int end = 0;
+        boolean eof = false;
+        long size = 0;
+
+        try (InputStream is = readScheduler.open(filePath)) {
+            while (true) {
+                // Keep at least one maximum-size chunk buffered so a cut point is never forced by the buffer edge.
+                if (!eof && end - start < MAX_CHUNK_SIZE) {
+                    System.arraycopy(buffer, start, buffer, 0, end - start);
+                    end -= start;
+                    start = 0;
+                    while (end < buffer.length) {
+                        int read = is.read(buffer, end, buffer.length - end);
+                        if (read < 0) {
+                            eof = true;
+                            break;
+                        }
+                        end += read;
+                    }
+                }
+                if (start == end) {
+                    break;
+                }
+
+                int length = findCutPoint(buffer, start, end - start);
+                fileDigest.update(buffer, start, length);
+                if (keepChunks) {
+                    chunkDigest.update(buffer, start, length);
+                    digests.add(Arrays.copyOf(chunkDigest.digest(), CHUNK_DIGEST_LENGTH));
+                    lengths.add(length);
+                }
+                size += length;
+                start += length;
+            }
+        } catch (IOException e) {
+            logger.error("Failed to chunk file: {}. Reason: {}", filePath, e.getMessage());
+            return null;
+        }
+
+        String hash = Hex.encodeHexString(fileDigest.digest());
+        FileHashInfo info = new FileHashInfo(filePath.toString(), filePath.getFileName().toString(), hash, size, hash.length());
+        return new ChunkedFile(info, digests, lengths);
+    }
+
+    /**
+     * FastCDC cut point search using a gear rolling hash.
+     *
+     * @return The length of the next chunk starting at {@code offset}.
+     */
+    static int findCutPoint(byte[] data, int offset, int length) {
+        if (length <= MIN_CHUNK_SIZE) {
+            return length;
+        }
+        int limit = Math.min(length, MAX_CHUNK_SIZE);
+        int normal = Math.min(limit, AVG_CHUNK_SIZE);
+        long fingerprint = 0;
+        int i = MIN_CHUNK_SIZE;
+        for (; i < normal; i++) {
+            fingerprint = (fingerprint << 1) + GEAR[data[offset + i] & 0xff];
+            if ((fingerprint & MASK_SMALL) == 0) {
+                return i;
+            }
+        }
+        for (; i < limit; i++) {
+            fingerprint = (fingerprint << 1) + GEAR[data[offset + i] & 0xff];
+            if ((fingerprint & MASK_LARGE) == 0) {
+                return i;
+            }
+        }
+        return limit;
+    }
+
+    private ChunkScanResult analyze(List<ChunkedFile> chunkedFiles) {
+        // 1. Assign every distinct chunk an id and collect, per chunk, the distinct files that contain it.
+        Map<ByteBuffer, Integer> chunkIds = new HashMap<>();
+        List<Integer> chunkLengths = new ArrayList<>();
+        List<List<Integer>> filesByChunk = new ArrayList<>();
+        int[][] fileChunks = new int[chunkedFiles.size()][];
+
+        for (int fileId = 0; fileId < chunkedFiles.size(); fileId++) {
+            ChunkedFile file = chunkedFiles.get(fileId);
+            int[] ids = new int[file.digests.size()];
+            for (int i = 0; i < ids.length; i++) {
+                ByteBuffer key = ByteBuffer.wrap(file.digests.get(i));
+                Integer id = chunkIds.get(key);
+                if (id == null) {
+                    id = chunkLengths.size();
+                    chunkIds.put(key, id);
+                    chunkLengths.add(file.lengths.get(i));
+                    filesByChunk.add(new ArrayList<>(2));
+                }
+                List<Integer> containing = filesByChunk.get(id);
+                if (containing.isEmpty() || containing.get(containing.size() - 1) != fileId) {
+                    containing.add(fileId);
+                }
+                ids[i] = id;
+            }
+            fileChunks[fileId] = ids;
+        }
+
+        // 2. Every occurrence of a chunk after its first one is reclaimable; attribute it to the file's directory.
+        BitSet seen = new BitSet(chunkLengths.size());
+        Map<String, long[]> directoryTotals = new HashMap<>();
+        long totalBytes = 0;
+        long reclaimableBytes = 0;
+        for (int fileId = 0; fileId < chunkedFiles.size(); fileId++) {
+            FileHashInfo info = chunkedFiles.get(fileId).info;
+            Path parent = Paths.get(info.getPath()).getParent();
+            long[] totals = directoryTotals.computeIfAbsent(parent == null ? "" : parent.toString(), k -> new long[2]);
+            totals[0] += info.getSize();
+            totalBytes += info.getSize();
+            for (int id : fileChunks[fileId]) {
+                if (seen.get(id)) {
+                    totals[1] += chunkLengths.get(id);
+                    reclaimableBytes += chunkLengths.get(id);
+                } else {
+                    seen.set(id);
+                }
+            }
+        }
+
+        // 3. Sum shared chunk bytes per file pair, skipping byte-identical pairs which EXACT already reports.
+        Map<Long, Long> sharedBytesByPair = new HashMap<>();
+        for (int id = 0; id < filesByChunk.size(); id++) {
+            List<Integer> containing = filesByChunk.get(id);
+            if (containing.size() < 2 || containing.size() > MAX_PAIR_FANOUT) {
+                continue;
+            }
+            for (int a = 0; a < containing.size(); a++) {
+                for (int b = a + 1; b < containing.size(); b++) {
+                    long pair = ((long) containing.get(a) << 32) | containing.get(b);
+                    sharedBytesByPair.merge(pair, (long) chunkLengths.get(id), Long::sum);
+                }
+            }
+        }
+        List<ChunkOverlap> overlaps = sharedBytesByPair.entrySet().stream()
+                .map(entry -> {
+                    FileHashInfo a = chunkedFiles.get((int) (entry.getKey() >>> 32)).info;
+                    FileHashInfo b = chunkedFiles.get((int) (entry.getKey() & 0xffffffffL)).info;
+                    return a.getHash().equals(b.getHash()) ? null
+                            : new ChunkOverlap(a.getPath(), b.getPath(), a.getSize(), b.getSize(), entry.getValue());
+                })
+                .filter(Objects::nonNull)
+                .sorted(Comparator.comparingLong(ChunkOverlap::getSharedBytes).reversed())
+                .limit(MAX_REPORTED_OVERLAPS)
+                .collect(Collectors.toList());
+
+        List<DirectoryReclaim> directories = directoryTotals.entrySet().stream()
+                .filter(entry -> entry.getValue()[1] > 0)
+                .map(entry -> new DirectoryReclaim(entry.getKey(), entry.getValue()[0], entry.getValue()[1]))
+                .sorted(Comparator.comparingLong(DirectoryReclaim::getReclaimableBytes).reversed())
+                .collect(Collectors.toList());
+
+        List<FileHashInfo> files = chunkedFiles.stream().map(file -> file.info).collect(Collectors.toList());
+        return new ChunkScanResult(files, overlaps, directories, totalBytes, reclaimableBytes);
+    }
+
+    private static final class ChunkedFile {
+        private final FileHashInfo info;
+        private final List<byte[]> digests;
+        private final List<Integer> lengths;
+
+        private ChunkedFile(FileHashInfo info, List<byte[]> digests, List<Integer> lengths) {
+            this.info = info;
+            this.digests = digests;
+            this.lengths = lengths;
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package com.example.DuplicateFinder.service;
+
+import com.example.DuplicateFinder.dto.DirectoryDuplicateGroup;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Detects whole duplicated directories by giving every directory a Merkle hash built bottom-up
+ * from its children's (name, hash) pairs. Two directories with the same hash contain the same
+ * names with the same content all the way down.
+ * <p>
+ * The tree is listed from the file system, not taken from the scan results, so every entry counts:
+ * empty subdirectories, symbolic links (by target), and files the scan did not hash. A directory that
+ * holds anything whose content was not checked (unreadable, special or unhashed files, unlistable
+ * directories) is never reported, because deleting it as a copy would delete that unchecked content.
+ */
+@Service
+public class DirectoryHashingService {
+    private static final Logger logger = LoggerFactory.getLogger(DirectoryHashingService.class);
+
+    private final FileHashingService fileHashingService;
+
+    public DirectoryHashingService(FileHashingService fileHashingService) {
+        this.fileHashingService = fileHashingService;
+    }
+
+    /**
+     * Finds identical subtrees under the scanned root. Nested duplicates are folded into their
+     * outermost duplicated ancestor, so a copied project folder is reported once.
+     *
+     * @param rootPath The directory that was scanned.
+     * @param files    The hashed files of that scan. Regular files under the root that are missing here
+     *                 make their directories ineligible.
+     * @return Duplicate directory groups, largest first.
+     */
+    public List<DirectoryDuplicateGroup> findDuplicateDirectories(String rootPath, List<FileHashInfo> files) {
+        Path root = Paths.get(rootPath);
+        Map<String, FileHashInfo> hashedByPath = files.stream()
+                .collect(Collectors.toMap(FileHashInfo::getPath, file -> file, (a, b) -> a));
+        Map<Path, DirectoryNode> nodes = hashTree(root, file -> hashedByPath.get(file.toString()));
+        if (nodes == null) {
+            return Collections.emptyList();
+        }
+
+        // Group by hash and report the outermost copies first; anything beneath an already redundant copy is skipped.
+        List<List<DirectoryNode>> candidates = nodes.values().stream()
+                .filter(node -> !node.path.equals(root) && node.totalSize > 0 && !node.unchecked)
+                .collect(Collectors.groupingBy(node -> node.hash))
+                .values().stream()
+                .filter(group -> group.size() > 1)
+                .sorted(Comparator.comparingLong((List<DirectoryNode> group) -> group.get(0).totalSize).reversed()
+                        .thenComparingInt(group -> group.get(0).path.getNameCount()))
+                .collect(Collectors.toList());
+
+        Set<Path> redundantRoots = new HashSet<>();
+        List<DirectoryDuplicateGroup> result = new ArrayList<>();
+        for (List<DirectoryNode> group : candidates) {
+            List<String> directories = group.stream()
+                    .map(node -> node.path)
+                    .filter(path -> !isUnder(path, redundantRoots))
+                    .map(Path::toString)
+                    .sorted()
+                    .collect(Collectors.toList());
+            if (directories.size() < 2) {
+                continue;
+            }
+            for (String redundant : directories.subList(1, directories.size())) {
+                redundantRoots.add(Paths.get(redundant));
+            }
+            DirectoryNode first = group.get(0);
+            result.add(new DirectoryDuplicateGroup(first.hash, directories, first.fileCount, first.totalSize,
+                    first.totalSize * (directories.size() - 1)));
+        }
+
+        logger.info("Found {} duplicate directory groups.", result.size());
+        return result;
+    }
+
+    /**
+     * Hashes a directory from its current content, reading every file under it, so a reported copy can be
+     * checked right before it is deleted.
+     *
+     * @return The directory's Merkle hash as a scan would report it, or null if anything beneath it could not be read.
+     */
+    public String currentHash(Path directory) {
+        Map<Path, DirectoryNode> nodes = hashTree(directory, fileHashingService::getFileHashInfo);
+        if (nodes == null || nodes.get(directory).unchecked) {
+            return null;
+        }
+        return nodes.get(directory).hash;
+    }
+
+    /**
+     * Lists a tree and hashes its directories bottom-up.
+     *
+     * @param hashedFile Supplies the content hash of a regular file, or null if its content is not known.
+     * @return Every directory of the tree by path, or null if the root could not be listed.
+     */
+    private Map<Path, DirectoryNode> hashTree(Path root, Function<Path, FileHashInfo> hashedFile) {
+        Map<Path, DirectoryNode> nodes = new HashMap<>();
+
+        // 1. List the tree and attach every entry to its directory.
+        try {
+            Files.walkFileTree(root, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                    nodes.put(dir, new DirectoryNode(dir));
+                    if (!dir.equals(root)) {
+                        nodes.get(dir.getParent()).children.add(dir);
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    DirectoryNode node = nodes.get(file.getParent());
+                    String name = file.getFileName().toString();
+                    // Checked first: the scan follows links, so a link carries its target's hash and would
+                    // otherwise make a directory of links look like a copy of the directory holding the data.
+                    if (attrs.isSymbolicLink()) {
+                        try {
+                            node.entries.add(new String[]{"l", name, Files.readSymbolicLink(file).toString()});
+                        } catch (IOException e) {
+                            node.addUnchecked(name);
+                        }
+                        return FileVisitResult.CONTINUE;
+                    }
+                    // Only regular files are read; special files such as FIFOs stay unchecked.
+                    FileHashInfo hashed = attrs.isRegularFile() ? hashedFile.apply(file) : null;
+                    if (hashed != null) {
+                        node.entries.add(new String[]{"f", name, hashed.getHash()});
+                        node.totalSize += hashed.getSize();
+                        node.fileCount++;
+                    } else {
+                        node.addUnchecked(name);
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException e) {
+                    DirectoryNode node = nodes.get(file.getParent());
+                    if (node != null) {
+                        node.addUnchecked(file.getFileName().toString());
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            logger.error("Failed to list directory tree: {}. Reason: {}", root, e.getMessage());
+            return null;
+        }
+        if (!nodes.containsKey(root)) {
+            return null;
+        }
+
+        // 2. Hash bottom-up: deeper directories first, so children are always hashed before their parent.
+        List<DirectoryNode> ordered = new ArrayList<>(nodes.values());
+        ordered.sort(Comparator.comparingInt((DirectoryNode node) -> node.path.getNameCount()).reversed());
+        MessageDigest digest = DigestUtils.getSha256Digest();
+        for (DirectoryNode node : ordered) {
+            for (Path child : node.children) {
+                DirectoryNode childNode = nodes.get(child);
+                node.entries.add(new String[]{"d", child.getFileName().toString(), childNode.hash});
+                node.totalSize += childNode.totalSize;
+                node.fileCount += childNode.fileCount;
+                node.unchecked |= childNode.unchecked;
+            }
+            node.entries.sort(Comparator.comparing((String[] entry) -> entry[1]).thenComparing(entry -> entry[0]));
+            for (String[] entry : node.entries) {
+                digest.update((entry[0] + "\u0000" + entry[1] + "\u0000" + entry[2] + "\n").getBytes(StandardCharsets.UTF_8));
+            }
+            node.hash = Hex.encodeHexString(digest.digest());
+            node.entries = null;
+        }
+        return nodes;
+    }
+
+    /**
+     * Removes the files that live inside redundant directory copies from the file-level groups.
+     * Groups left with fewer than two files are dropped, since deleting the directory copy already covers them.
+     */
+    public List<List<FileHashInfo>> suppressCoveredGroups(Collection<List<FileHashInfo>> fileGroups,
+                                                          List<DirectoryDuplicateGroup> directoryGroups) {
+        Set<Path> redundantRoots = new HashSet<>();
+        for (DirectoryDuplicateGroup group : directoryGroups) {
+            for (String redundant : group.getDirectories().subList(1, group.getDirectories().size())) {
+                redundantRoots.add(Paths.get(redundant));
+            }
+        }
+        if (redundantRoots.isEmpty()) {
+            return new ArrayList<>(fileGroups);
+        }
+
+        List<List<FileHashInfo>> remaining = new ArrayList<>();
+        for (List<FileHashInfo> group : fileGroups) {
+            List<FileHashInfo> outside = group.stream()
+                    .filter(file -> !isUnder(Paths.get(file.getPath()), redundantRoots))
+                    .collect(Collectors.toList());
+            if (outside.size() > 1) {
+                remaining.add(outside);
+            }
+        }
+        return remaining;
+    }
+
+    private static boolean isUnder(Path path, Set<Path> roots) {
+        for (Path current = path; current != null; current = current.getParent()) {
+            if (roots.contains(current)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static final class DirectoryNode {
+        private final Path path;
+        private final Set<Path> children = new HashSet<>();
+        private List<String[]> entries = new ArrayList<>();
+        private long totalSize;
+        private int fileCount;
+        // True if this directory or anything beneath it holds content that was not hashed.
+        private boolean unchecked;
+        private String hash;
+
+        private DirectoryNode(Path path) {
+            this.path = path;
+        }
+
+        private void addUnchecked(String name) {
+            entries.add(new String[]{"u", name, ""});
+            unchecked = true;
+        }
+    }
+}
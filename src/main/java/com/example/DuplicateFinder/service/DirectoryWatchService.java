@@ -0,0 +1,718 @@
+package com.example.DuplicateFinder.service;
+
+import com.example.DuplicateFinder.dto.WatchUpdate;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * Keeps the duplicate index of a scanned directory current without rescanning it.
+ * Every directory of a watched tree is registered with the platform {@link WatchService};
+ * directories that cannot be registered (typically because the inotify watch limit was hit)
+ * are swept periodically by comparing modification times and sizes instead.
+ * Created or modified files are hashed again once their size and modification time have stopped
+ * changing, so a file that is still being written is read once, not once per event. Each change is
+ * pushed to subscribers as a {@link WatchUpdate} through a per-subscriber queue, outside the tree's lock.
+ * <p>
+ * The initial scan of a tree is admitted through the {@link ScanResourceGovernor}, and the heap it reserved
+ * stays reserved until the tree is no longer watched.
+ */
+@Service
+public class DirectoryWatchService {
+    private static final Logger logger = LoggerFactory.getLogger(DirectoryWatchService.class);
+    private static final long SWEEP_INTERVAL_SECONDS = 30;
+    // A changed file is hashed once its size and modification time have been stable for this long.
+    private static final long SETTLE_MILLIS = 1000;
+    // A subscriber that falls this many updates behind is dropped.
+    private static final int MAX_QUEUED_UPDATES = 256;
+
+    private final FileHashingService fileHashingService;
+    private final CategorizationService categorizationService;
+    private final ScanResourceGovernor scanResourceGovernor;
+
+    private final Map<Path, WatchedTree> trees = new ConcurrentHashMap<>();
+    private final Map<WatchKey, WatchedDirectory> watchKeys = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "directory-sweeper");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final ExecutorService publisher = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "watch-publisher");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private WatchService watchService;
+    private Thread watchThread;
+
+    public DirectoryWatchService(FileHashingService fileHashingService, CategorizationService categorizationService,
+                                 ScanResourceGovernor scanResourceGovernor) {
+        this.fileHashingService = fileHashingService;
+        this.categorizationService = categorizationService;
+        this.scanResourceGovernor = scanResourceGovernor;
+        sweeper.scheduleWithFixedDelay(this::sweepPollingDirectories,
+                SWEEP_INTERVAL_SECONDS, SWEEP_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        sweeper.scheduleWithFixedDelay(this::hashSettledFiles, SETTLE_MILLIS, SETTLE_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Hashes the tree once and starts watching it. Watching an already watched root is a no-op.
+     * The initial scan holds neither this service's lock nor the tree's, so other trees keep being
+     * watched meanwhile; events for the new tree are collected and applied once its index is built.
+     *
+     * @throws IllegalArgumentException if the path overlaps a tree that is already watched.
+     * @throws ScanRejectedException    if the governor does not admit the initial scan.
+     * @throws IOException              if the tree does not fit in a scan's memory budget.
+     */
+    public Map<String, Object> startWatching(String pathString) throws IOException {
+        Path root = Paths.get(pathString).toAbsolutePath().normalize();
+        if (!Files.isDirectory(root)) {
+            throw new IOException("Provided path is not a directory: " + pathString);
+        }
+        synchronized (this) {
+            if (trees.containsKey(root)) {
+                return getCurrentState(pathString);
+            }
+            checkOverlap(root);
+        }
+        // Admission may queue, so it happens outside the lock; the checks are repeated once admitted.
+        ScanBudget budget = scanResourceGovernor.admit("watch of " + root);
+        WatchedTree tree;
+        try {
+            synchronized (this) {
+                if (trees.containsKey(root)) {
+                    budget.close();
+                    return getCurrentState(pathString);
+                }
+                checkOverlap(root);
+                if (watchService == null) {
+                    watchService = FileSystems.getDefault().newWatchService();
+                    watchThread = new Thread(this::processEvents, "directory-watcher");
+                    watchThread.setDaemon(true);
+                    watchThread.start();
+                }
+                tree = new WatchedTree(root, budget);
+                trees.put(root, tree);
+            }
+        } catch (IOException | RuntimeException e) {
+            budget.close();
+            throw e;
+        }
+
+        try {
+            // Registered before the scan, so changes made while it runs produce events.
+            synchronized (tree) {
+                registerTree(tree, root);
+            }
+            List<FileHashInfo> scanned = fileHashingService.scanAndHashFiles(root.toString(), budget);
+            // A partial index would report files as unique that were never looked at.
+            if (budget.isTruncated()) {
+                throw new IOException("Directory is too large to watch within the scan memory budget: " + pathString);
+            }
+            synchronized (tree) {
+                for (FileHashInfo info : scanned) {
+                    tree.index(info, lastModified(Paths.get(info.getPath())));
+                }
+                // Deletions seen during the scan may have removed files the scan had already listed.
+                ChangeSet ignored = new ChangeSet();
+                for (Path removed : tree.removedWhileInitializing) {
+                    tree.remove(removed, ignored);
+                }
+                tree.removedWhileInitializing.clear();
+                tree.initializing = false;
+            }
+            budget.releaseScanSlot();
+        } catch (IOException | RuntimeException e) {
+            abandon(tree);
+            throw e;
+        }
+        logger.info("Watching {} ({} files, {} directories polled).", root, tree.files.size(), tree.pollingDirectories.size());
+        return getCurrentState(pathString);
+    }
+
+    public synchronized boolean stopWatching(String pathString) {
+        Path root = Paths.get(pathString).toAbsolutePath().normalize();
+        WatchedTree tree = trees.remove(root);
+        if (tree == null) {
+            return false;
+        }
+        close(tree);
+        logger.info("Stopped watching {}.", root);
+        return true;
+    }
+
+    private void checkOverlap(Path root) {
+        for (Path watched : trees.keySet()) {
+            if (watched.startsWith(root) || root.startsWith(watched)) {
+                throw new IllegalArgumentException("Path overlaps an already watched directory: " + watched);
+            }
+        }
+    }
+
+    /**
+     * Removes a tree whose initial scan failed, unless it was already stopped (and possibly replaced) meanwhile.
+     */
+    private synchronized void abandon(WatchedTree tree) {
+        if (trees.remove(tree.root, tree)) {
+            close(tree);
+        }
+    }
+
+    private void close(WatchedTree tree) {
+        watchKeys.entrySet().removeIf(entry -> {
+            if (entry.getValue().tree == tree) {
+                entry.getKey().cancel();
+                return true;
+            }
+            return false;
+        });
+        tree.budget.close();
+    }
+
+    /**
+     * Returns the current duplicates and categories of a watched tree in the same shape as a scan response,
+     * or null if the path is not watched.
+     */
+    public Map<String, Object> getCurrentState(String pathString) {
+        WatchedTree tree = trees.get(Paths.get(pathString).toAbsolutePath().normalize());
+        if (tree == null) {
+            return null;
+        }
+        synchronized (tree) {
+            List<List<FileHashInfo>> duplicates = tree.pathsByHash.values().stream()
+                    .filter(paths -> paths.size() > 1)
+                    .map(tree::infosFor)
+                    .collect(Collectors.toList());
+            Map<String, List<String>> categorizedApps = new HashMap<>();
+            tree.pathsByCategory.forEach((category, paths) -> categorizedApps.put(category, new ArrayList<>(paths)));
+
+            Map<String, Object> state = new HashMap<>();
+            state.put("duplicates", duplicates);
+            state.put("categorizedApps", categorizedApps);
+            state.put("watchedFiles", tree.files.size());
+            state.put("pollingDirectories", tree.pollingDirectories.size());
+            state.put("initializing", tree.initializing);
+            return state;
+        }
+    }
+
+    public boolean subscribe(String pathString, Consumer<WatchUpdate> subscriber) {
+        WatchedTree tree = trees.get(Paths.get(pathString).toAbsolutePath().normalize());
+        if (tree == null) {
+            return false;
+        }
+        tree.subscribers.add(new WatchSubscriber(tree, subscriber));
+        return true;
+    }
+
+    public void unsubscribe(String pathString, Consumer<WatchUpdate> subscriber) {
+        WatchedTree tree = trees.get(Paths.get(pathString).toAbsolutePath().normalize());
+        if (tree != null) {
+            tree.subscribers.removeIf(watchSubscriber -> watchSubscriber.consumer == subscriber);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sweeper.shutdownNow();
+        publisher.shutdownNow();
+        trees.values().forEach(tree -> tree.budget.close());
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                logger.warn("Failed to close watch service: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void processEvents() {
+        while (true) {
+            WatchKey key;
+            try {
+                key = watchService.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+            WatchedDirectory directory = watchKeys.get(key);
+            if (directory == null) {
+                key.reset();
+                continue;
+            }
+
+            // Collapse the batch to one event per path: a file being written produces a MODIFY per write.
+            boolean overflow = false;
+            Map<Path, WatchEvent.Kind<?>> latest = new LinkedHashMap<>();
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == OVERFLOW) {
+                    overflow = true;
+                    continue;
+                }
+                latest.merge(directory.path.resolve((Path) event.context()), event.kind(),
+                        (previous, next) -> previous == ENTRY_CREATE && next == ENTRY_MODIFY ? ENTRY_CREATE : next);
+            }
+
+            WatchedTree tree = directory.tree;
+            WatchUpdate update;
+            synchronized (tree) {
+                ChangeSet changes = new ChangeSet();
+                if (overflow) {
+                    logger.warn("Watch events overflowed for {}. Resynchronizing.", directory.path);
+                    sweepDirectory(tree, directory.path, true, changes);
+                }
+                for (Map.Entry<Path, WatchEvent.Kind<?>> event : latest.entrySet()) {
+                    Path child = event.getKey();
+                    if (event.getValue() == ENTRY_DELETE) {
+                        if (tree.initializing) {
+                            tree.removedWhileInitializing.add(child);
+                        }
+                        tree.remove(child, changes);
+                    } else if (Files.isDirectory(child, LinkOption.NOFOLLOW_LINKS)) {
+                        if (event.getValue() == ENTRY_CREATE) {
+                            registerTree(tree, child);
+                            sweepDirectory(tree, child, true, changes);
+                        }
+                    } else if (Files.isRegularFile(child, LinkOption.NOFOLLOW_LINKS)) {
+                        tree.markPending(child);
+                    }
+                }
+                update = toUpdate(tree, changes);
+            }
+            publish(tree, update);
+            if (!key.reset()) {
+                watchKeys.remove(key);
+            }
+        }
+    }
+
+    private void sweepPollingDirectories() {
+        for (WatchedTree tree : trees.values()) {
+            WatchUpdate update;
+            synchronized (tree) {
+                if (tree.initializing || tree.pollingDirectories.isEmpty()) {
+                    continue;
+                }
+                ChangeSet changes = new ChangeSet();
+                for (Path directory : new ArrayList<>(tree.pollingDirectories)) {
+                    if (!Files.isDirectory(directory)) {
+                        tree.pollingDirectories.remove(directory);
+                        tree.remove(directory, changes);
+                        continue;
+                    }
+                    sweepDirectory(tree, directory, false, changes);
+                }
+                update = toUpdate(tree, changes);
+            }
+            publish(tree, update);
+        }
+    }
+
+    /**
+     * Hashes pending files whose size and modification time have not changed for {@link #SETTLE_MILLIS}.
+     * Reading happens outside the tree's lock; a file that changed again meanwhile stays pending.
+     */
+    private void hashSettledFiles() {
+        for (WatchedTree tree : trees.values()) {
+            if (tree.initializing) {
+                // Pending files of a tree whose first scan is still running are hashed once it is indexed.
+                continue;
+            }
+            Map<Path, PendingFile> settled = new LinkedHashMap<>();
+            WatchUpdate removals;
+            synchronized (tree) {
+                long now = System.currentTimeMillis();
+                List<Path> vanished = new ArrayList<>();
+                for (Map.Entry<Path, PendingFile> entry : tree.pendingFiles.entrySet()) {
+                    PendingFile observed = PendingFile.of(entry.getKey(), now);
+                    if (observed == null) {
+                        // Gone without a delete event (polled directories, overflow); it will not settle.
+                        vanished.add(entry.getKey());
+                    } else if (!observed.sameAs(entry.getValue())) {
+                        entry.setValue(observed);
+                    } else if (now - entry.getValue().observedAt >= SETTLE_MILLIS) {
+                        settled.put(entry.getKey(), entry.getValue());
+                    }
+                }
+                ChangeSet changes = new ChangeSet();
+                for (Path file : vanished) {
+                    tree.remove(file, changes);
+                }
+                removals = toUpdate(tree, changes);
+            }
+            publish(tree, removals);
+            if (settled.isEmpty()) {
+                continue;
+            }
+
+            Map<Path, FileHashInfo> hashed = new HashMap<>();
+            for (Path file : settled.keySet()) {
+                hashed.put(file, fileHashingService.getFileHashInfo(file));
+            }
+
+            WatchUpdate update;
+            synchronized (tree) {
+                ChangeSet changes = new ChangeSet();
+                for (Map.Entry<Path, PendingFile> entry : settled.entrySet()) {
+                    Path file = entry.getKey();
+                    PendingFile now = PendingFile.of(file, System.currentTimeMillis());
+                    if (tree.pendingFiles.get(file) != entry.getValue() || (now != null && !now.sameAs(entry.getValue()))) {
+                        continue;
+                    }
+                    tree.pendingFiles.remove(file);
+                    tree.apply(file, hashed.get(file), changes);
+                }
+                update = toUpdate(tree, changes);
+            }
+            publish(tree, update);
+        }
+    }
+
+    /**
+     * Re-indexes files whose size or modification time changed and drops files that disappeared.
+     * Non-recursive sweeps still pick up new subdirectories, which are registered and indexed.
+     */
+    private void sweepDirectory(WatchedTree tree, Path directory, boolean recursive, ChangeSet changes) {
+        Set<String> seen = new HashSet<>();
+        try (Stream<Path> entries = Files.list(directory)) {
+            for (Path entry : (Iterable<Path>) entries::iterator) {
+                if (Files.isDirectory(entry, LinkOption.NOFOLLOW_LINKS)) {
+                    boolean known = tree.knownDirectories.contains(entry);
+                    if (!known) {
+                        registerTree(tree, entry);
+                    }
+                    if (recursive || !known) {
+                        sweepDirectory(tree, entry, true, changes);
+                    }
+                } else if (Files.isRegularFile(entry, LinkOption.NOFOLLOW_LINKS)) {
+                    seen.add(entry.toString());
+                    FileHashInfo known = tree.files.get(entry.toString());
+                    Long knownModified = tree.modifiedTimes.get(entry.toString());
+                    if (known == null || knownModified == null
+                            || knownModified != lastModified(entry) || known.getSize() != Files.size(entry)) {
+                        tree.markPending(entry);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            logger.error("Failed to sweep directory: {}. Reason: {}", directory, e.getMessage());
+            return;
+        }
+
+        List<String> vanished = tree.filesByDirectory.getOrDefault(directory, Collections.emptySet()).stream()
+                .filter(path -> !seen.contains(path))
+                .collect(Collectors.toList());
+        for (String path : vanished) {
+            tree.remove(Paths.get(path), changes);
+        }
+    }
+
+    private void registerTree(WatchedTree tree, Path start) {
+        try {
+            Files.walkFileTree(start, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                    tree.knownDirectories.add(dir);
+                    try {
+                        WatchKey key = dir.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+                        watchKeys.put(key, new WatchedDirectory(tree, dir));
+                    } catch (IOException e) {
+                        // Usually the inotify watch limit; fall back to periodic sweeps for this directory.
+                        if (tree.pollingDirectories.isEmpty()) {
+                            logger.warn("Could not watch {} ({}). Falling back to polling.", dir, e.getMessage());
+                        }
+                        tree.pollingDirectories.add(dir);
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException e) {
+                    logger.error("Failed to visit: {}. Reason: {}", file, e.getMessage());
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            logger.error("Failed to register directory tree: {}. Reason: {}", start, e.getMessage());
+        }
+    }
+
+    /**
+     * Builds the update for a set of changes while the tree's lock is held, or returns null if nothing changed.
+     */
+    private WatchUpdate toUpdate(WatchedTree tree, ChangeSet changes) {
+        if (changes.isEmpty()) {
+            return null;
+        }
+        Map<String, List<FileHashInfo>> groups = new HashMap<>();
+        for (String hash : changes.affectedHashes) {
+            Set<String> paths = tree.pathsByHash.get(hash);
+            groups.put(hash, paths != null && paths.size() > 1 ? tree.infosFor(paths) : Collections.emptyList());
+        }
+        return new WatchUpdate(tree.root.toString(), changes.updatedFiles,
+                changes.removedFiles, groups, changes.categoryChanges);
+    }
+
+    /**
+     * Queues the update for every subscriber; must be called without holding the tree's lock.
+     */
+    private void publish(WatchedTree tree, WatchUpdate update) {
+        if (update == null) {
+            return;
+        }
+        for (WatchSubscriber subscriber : tree.subscribers) {
+            subscriber.offer(update);
+        }
+    }
+
+    private static long lastModified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path).toMillis();
+        } catch (IOException e) {
+            return -1L;
+        }
+    }
+
+    private static final class WatchedDirectory {
+        private final WatchedTree tree;
+        private final Path path;
+
+        private WatchedDirectory(WatchedTree tree, Path path) {
+            this.tree = tree;
+            this.path = path;
+        }
+    }
+
+    /**
+     * The size and modification time of a changed file when it was last seen to change.
+     */
+    private static final class PendingFile {
+        private final long size;
+        private final long modified;
+        private final long observedAt;
+
+        private PendingFile(long size, long modified, long observedAt) {
+            this.size = size;
+            this.modified = modified;
+            this.observedAt = observedAt;
+        }
+
+        private static PendingFile of(Path file, long now) {
+            try {
+                BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                return new PendingFile(attributes.size(), attributes.lastModifiedTime().toMillis(), now);
+            } catch (IOException e) {
+                return null;
+            }
+        }
+
+        private boolean sameAs(PendingFile other) {
+            return size == other.size && modified == other.modified;
+        }
+    }
+
+    /**
+     * Delivers updates to one subscriber in order on the publisher pool, so a slow client only delays itself.
+     */
+    private final class WatchSubscriber {
+        private final WatchedTree tree;
+        private final Consumer<WatchUpdate> consumer;
+        private final Queue<WatchUpdate> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger queued = new AtomicInteger();
+        private final AtomicBoolean draining = new AtomicBoolean();
+
+        private WatchSubscriber(WatchedTree tree, Consumer<WatchUpdate> consumer) {
+            this.tree = tree;
+            this.consumer = consumer;
+        }
+
+        private void offer(WatchUpdate update) {
+            if (queued.incrementAndGet() > MAX_QUEUED_UPDATES) {
+                drop("more than " + MAX_QUEUED_UPDATES + " updates behind");
+                return;
+            }
+            queue.add(update);
+            if (draining.compareAndSet(false, true)) {
+                publisher.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            WatchUpdate update;
+            while ((update = queue.poll()) != null) {
+                queued.decrementAndGet();
+                try {
+                    consumer.accept(update);
+                } catch (RuntimeException e) {
+                    drop(e.getMessage());
+                    return;
+                }
+            }
+            draining.set(false);
+            // An update queued after the last poll but before the flag was cleared still needs a drain.
+            if (!queue.isEmpty() && draining.compareAndSet(false, true)) {
+                publisher.execute(this::drain);
+            }
+        }
+
+        private void drop(String reason) {
+            if (tree.subscribers.remove(this)) {
+                logger.warn("Dropping watch subscriber for {}: {}", tree.root, reason);
+            }
+            queue.clear();
+        }
+    }
+
+    private static final class ChangeSet {
+        private final List<FileHashInfo> updatedFiles = new ArrayList<>();
+        private final List<String> removedFiles = new ArrayList<>();
+        private final Set<String> affectedHashes = new HashSet<>();
+        private final Map<String, String> categoryChanges = new HashMap<>();
+
+        private boolean isEmpty() {
+            return updatedFiles.isEmpty() && removedFiles.isEmpty();
+        }
+    }
+
+    /**
+     * The incrementally maintained index of one watched root. All access is synchronized on the instance.
+     */
+    private final class WatchedTree {
+        private final Path root;
+        private final ScanBudget budget;
+        private final Map<String, FileHashInfo> files = new HashMap<>();
+        private final Map<String, Long> modifiedTimes = new HashMap<>();
+        private final Map<Path, Set<String>> filesByDirectory = new HashMap<>();
+        private final Map<String, Set<String>> pathsByHash = new HashMap<>();
+        private final Map<String, String> categoryByPath = new HashMap<>();
+        private final Map<String, Set<String>> pathsByCategory = new HashMap<>();
+        private final Set<Path> knownDirectories = new HashSet<>();
+        private final Set<Path> pollingDirectories = new LinkedHashSet<>();
+        private final Map<Path, PendingFile> pendingFiles = new LinkedHashMap<>();
+        private final List<WatchSubscriber> subscribers = new CopyOnWriteArrayList<>();
+        // Set until the initial scan is indexed; the sweeper skips the tree meanwhile. Read without the lock.
+        private volatile boolean initializing = true;
+        private final List<Path> removedWhileInitializing = new ArrayList<>();
+
+        private WatchedTree(Path root, ScanBudget budget) {
+            this.root = root;
+            this.budget = budget;
+        }
+
+        /**
+         * Queues a changed file for hashing once it has settled. Further changes only restart its settle time.
+         */
+        private void markPending(Path file) {
+            PendingFile observed = PendingFile.of(file, System.currentTimeMillis());
+            if (observed != null) {
+                pendingFiles.put(file, observed);
+            }
+        }
+
+        private void apply(Path file, FileHashInfo info, ChangeSet changes) {
+            if (info == null) {
+                remove(file, changes);
+                return;
+            }
+            FileHashInfo previous = files.get(info.getPath());
+            modifiedTimes.put(info.getPath(), lastModified(file));
+            if (previous != null && previous.getHash().equals(info.getHash())) {
+                return;
+            }
+            if (previous != null) {
+                unindex(previous, changes);
+            }
+            String category = index(info, modifiedTimes.get(info.getPath()));
+            changes.updatedFiles.add(info);
+            changes.affectedHashes.add(info.getHash());
+            if (previous == null) {
+                changes.categoryChanges.put(info.getPath(), category);
+            }
+        }
+
+        private void remove(Path path, ChangeSet changes) {
+            pendingFiles.keySet().removeIf(pending -> pending.startsWith(path));
+            FileHashInfo removed = files.get(path.toString());
+            if (removed != null) {
+                unindex(removed, changes);
+                changes.removedFiles.add(removed.getPath());
+                return;
+            }
+            // A deleted directory: drop everything that was indexed beneath it.
+            List<FileHashInfo> beneath = files.values().stream()
+                    .filter(info -> Paths.get(info.getPath()).startsWith(path))
+                    .collect(Collectors.toList());
+            for (FileHashInfo info : beneath) {
+                unindex(info, changes);
+                changes.removedFiles.add(info.getPath());
+            }
+            knownDirectories.removeIf(directory -> directory.startsWith(path));
+            pollingDirectories.removeIf(directory -> directory.startsWith(path));
+        }
+
+        private String index(FileHashInfo info, long modified) {
+            files.put(info.getPath(), info);
+            modifiedTimes.put(info.getPath(), modified);
+            filesByDirectory.computeIfAbsent(Paths.get(info.getPath()).getParent(), k -> new HashSet<>()).add(info.getPath());
+            pathsByHash.computeIfAbsent(info.getHash(), k -> new LinkedHashSet<>()).add(info.getPath());
+            String category = categorizationService.categorizeFile(info);
+            if (category != null) {
+                categoryByPath.put(info.getPath(), category);
+                pathsByCategory.computeIfAbsent(category, k -> new LinkedHashSet<>()).add(info.getPath());
+            }
+            return category;
+        }
+
+        private void unindex(FileHashInfo info, ChangeSet changes) {
+            files.remove(info.getPath());
+            modifiedTimes.remove(info.getPath());
+            Path parent = Paths.get(info.getPath()).getParent();
+            Set<String> inDirectory = filesByDirectory.get(parent);
+            if (inDirectory != null) {
+                inDirectory.remove(info.getPath());
+                if (inDirectory.isEmpty()) {
+                    filesByDirectory.remove(parent);
+                }
+            }
+            Set<String> sameHash = pathsByHash.get(info.getHash());
+            if (sameHash != null) {
+                sameHash.remove(info.getPath());
+                if (sameHash.isEmpty()) {
+                    pathsByHash.remove(info.getHash());
+                }
+            }
+            changes.affectedHashes.add(info.getHash());
+            String category = categoryByPath.remove(info.getPath());
+            if (category != null) {
+                Set<String> inCategory = pathsByCategory.get(category);
+                inCategory.remove(info.getPath());
+                if (inCategory.isEmpty()) {
+                    pathsByCategory.remove(category);
+                }
+            }
+        }
+
+        private List<FileHashInfo> infosFor(Collection<String> paths) {
+            return paths.stream().map(files::get).collect(Collectors.toList());
+        }
+    }
+}
@@ -5,19 +5,26 @@ import lombok.Data;
 import org.apache.commons.codec.digest.DigestUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -25,6 +32,20 @@ import java.util.stream.Stream;
 public class FileHashingService {
     private static final Logger logger = LoggerFactory.getLogger(FileHashingService.class);
 
+    private static final int COMPARE_BLOCK_SIZE = 1 << 20;
+    private static final int COMPARE_ALIGNMENT = 4096;
+
+    private final ReadScheduler readScheduler;
+    private final int maxCompareGroupSize;
+    // One set of aligned direct buffers per read thread, reused across groups.
+    private final ThreadLocal<ByteBuffer[]> compareBuffers = ThreadLocal.withInitial(() -> new ByteBuffer[0]);
+
+    public FileHashingService(ReadScheduler readScheduler,
+                              @Value("${duplicatefinder.compare.max-group-size:3}") int maxCompareGroupSize) {
+        this.readScheduler = readScheduler;
+        this.maxCompareGroupSize = maxCompareGroupSize;
+    }
+
     /**
      * Finds duplicate files in a directory using an efficient two-pass strategy.
      * It first groups files by size, then calculates hashes only for potential duplicates.
@@ -48,6 +69,179 @@ public class FileHashingService {
                 ));
     }
 
+    /**
+     * Finds duplicates without hashing where possible (the COMPARE strategy). Files are grouped by size;
+     * files with a unique size are never read. Groups of up to {@code duplicatefinder.compare.max-group-size}
+     * files are read together block by block and split as soon as their bytes diverge, so files that differ
+     * early are barely read and a match never depends on a hash. Larger groups are hashed as in EXACT scans.
+     *
+     * @param files Files listed by {@link #scanFileNames(String, ScanBudget)}. Hashed files get their hash set.
+     * @return Duplicate groups. Byte-compared groups are keyed {@code cmp:<size>:<n>}, hashed ones by their hash.
+     */
+    public Map<String, List<FileHashInfo>> findDuplicatesByComparison(List<FileHashInfo> files) {
+        Map<Long, List<FileHashInfo>> filesBySize = files.stream()
+                .collect(Collectors.groupingBy(FileHashInfo::getSize, LinkedHashMap::new, Collectors.toList()));
+
+        Map<String, List<FileHashInfo>> duplicates = new LinkedHashMap<>();
+        Map<Path, List<FileHashInfo>> toCompare = new LinkedHashMap<>();
+        List<Path> toHash = new ArrayList<>();
+        for (List<FileHashInfo> group : filesBySize.values()) {
+            if (group.size() < 2) {
+                continue;
+            }
+            if (group.get(0).getSize() == 0) {
+                duplicates.put("cmp:0:0", group);
+            } else if (group.size() <= maxCompareGroupSize) {
+                toCompare.put(Paths.get(group.get(0).getPath()), group);
+            } else {
+                group.forEach(file -> toHash.add(Paths.get(file.getPath())));
+            }
+        }
+        logger.info("Comparing {} same-size groups byte by byte and hashing {} files in larger groups.", toCompare.size(), toHash.size());
+
+        // 1. Small groups: each is one job, scheduled by the device and location of its first member.
+        List<List<List<FileHashInfo>>> compared = readScheduler.schedule(new ArrayList<>(toCompare.keySet()),
+                first -> compareGroup(toCompare.get(first)));
+        for (List<List<FileHashInfo>> matches : compared) {
+            for (List<FileHashInfo> match : matches) {
+                duplicates.put("cmp:" + match.get(0).getSize() + ":" + duplicates.size(), match);
+            }
+        }
+
+        // 2. Large groups: hashing reads every member once, instead of comparing each member with every other.
+        Map<String, FileHashInfo> byPath = files.stream()
+                .collect(Collectors.toMap(FileHashInfo::getPath, file -> file, (a, b) -> a));
+        for (FileHashInfo hashed : readScheduler.schedule(toHash, this::getFileHashInfo)) {
+            FileHashInfo file = byPath.get(hashed.getPath());
+            file.setHash(hashed.getHash());
+            file.setHashSize(hashed.getHashSize());
+        }
+        duplicates.putAll(findDuplicates(files.stream()
+                .filter(file -> !file.getHash().isEmpty())
+                .collect(Collectors.toList())));
+        return duplicates;
+    }
+
+    /**
+     * Reads the members of a same-size group in lockstep and returns the subsets whose contents are identical.
+     * Only the listed size is read, so a member whose size no longer matches, on opening or after the last
+     * block, has changed since the scan and is left out rather than matched on a prefix.
+     */
+    private List<List<FileHashInfo>> compareGroup(List<FileHashInfo> group) {
+        ByteBuffer[] buffers = compareBuffers.get();
+        if (buffers.length < group.size()) {
+            buffers = Arrays.copyOf(buffers, group.size());
+            for (int i = 0; i < buffers.length; i++) {
+                if (buffers[i] == null) {
+                    buffers[i] = ByteBuffer.allocateDirect(COMPARE_BLOCK_SIZE + COMPARE_ALIGNMENT).alignedSlice(COMPARE_ALIGNMENT);
+                }
+            }
+            compareBuffers.set(buffers);
+        }
+
+        List<FileChannel> channels = new ArrayList<>(group.size());
+        try {
+            // Members are identified by index; members that fail to open or read drop out of every class.
+            List<Integer> opened = new ArrayList<>();
+            for (int i = 0; i < group.size(); i++) {
+                FileChannel channel = null;
+                try {
+                    channel = FileChannel.open(Paths.get(group.get(i).getPath()), StandardOpenOption.READ);
+                    if (hasSize(channel, group.get(i))) {
+                        opened.add(i);
+                    }
+                } catch (IOException e) {
+                    logger.error("Failed to open file: {}. Reason: {}", group.get(i).getPath(), e.getMessage());
+                }
+                channels.add(channel);
+            }
+            List<List<Integer>> classes = new ArrayList<>();
+            classes.add(opened);
+
+            long size = group.get(0).getSize();
+            for (long position = 0; position < size && !classes.isEmpty(); position += COMPARE_BLOCK_SIZE) {
+                List<List<Integer>> next = new ArrayList<>();
+                for (List<Integer> members : classes) {
+                    // Read this block of every member, then split the class by block content.
+                    List<List<Integer>> splits = new ArrayList<>();
+                    for (int member : members) {
+                        ByteBuffer buffer = buffers[member];
+                        if (!readBlock(channels.get(member), buffer, group.get(member).getPath())) {
+                            continue;
+                        }
+                        List<Integer> same = null;
+                        for (List<Integer> split : splits) {
+                            if (buffers[split.get(0)].equals(buffer)) {
+                                same = split;
+                                break;
+                            }
+                        }
+                        if (same == null) {
+                            same = new ArrayList<>();
+                            splits.add(same);
+                        }
+                        same.add(member);
+                    }
+                    // A member left alone cannot be a duplicate; it is not read any further.
+                    splits.stream().filter(split -> split.size() > 1).forEach(next::add);
+                }
+                classes = next;
+            }
+
+            List<List<FileHashInfo>> matches = new ArrayList<>();
+            for (List<Integer> members : classes) {
+                List<FileHashInfo> unchanged = members.stream()
+                        .filter(member -> hasSize(channels.get(member), group.get(member)))
+                        .map(group::get)
+                        .collect(Collectors.toList());
+                if (unchanged.size() > 1) {
+                    matches.add(unchanged);
+                }
+            }
+            return matches;
+        } finally {
+            for (FileChannel channel : channels) {
+                if (channel != null) {
+                    try {
+                        channel.close();
+                    } catch (IOException e) {
+                        logger.warn("Failed to close file channel. Reason: {}", e.getMessage());
+                    }
+                }
+            }
+        }
+    }
+
+    private static boolean hasSize(FileChannel channel, FileHashInfo file) {
+        try {
+            if (channel.size() == file.getSize()) {
+                return true;
+            }
+            logger.warn("File changed during comparison: {} ({} bytes, listed as {}).", file.getPath(), channel.size(), file.getSize());
+        } catch (IOException e) {
+            logger.error("Failed to read size of file: {}. Reason: {}", file.getPath(), e.getMessage());
+        }
+        return false;
+    }
+
+    /**
+     * Fills the buffer with the channel's next block, or less at the end of the file, and flips it for comparison.
+     */
+    private boolean readBlock(FileChannel channel, ByteBuffer buffer, String path) {
+        buffer.clear();
+        try {
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // Keep reading until the block is full or the file ends.
+            }
+            buffer.flip();
+            readScheduler.throttle(buffer.remaining());
+            return true;
+        } catch (IOException e) {
+            logger.error("Failed to read file: {}. Reason: {}", path, e.getMessage());
+            return false;
+        }
+    }
+
     /**
      * Scans a directory and returns a list of all files with their info.
      * This is needed for features like categorization.
@@ -56,6 +250,22 @@ public class FileHashingService {
      * @throws IOException if an I/O error occurs.
      */
     public List<FileHashInfo> scanAndHashFiles(String pathString) throws IOException {
+        return scanAndHashFiles(pathString, ScanBudget.unbounded());
+    }
+
+    /**
+     * Same as {@link #scanAndHashFiles(String)}, but stops walking once the scan's memory budget
+     * refuses more entries. The budget is then marked truncated and the files found so far are returned.
+     */
+    public List<FileHashInfo> scanAndHashFiles(String pathString, ScanBudget budget) throws IOException {
+        return scanAndHashFiles(pathString, budget, info -> { });
+    }
+
+    /**
+     * Same as {@link #scanAndHashFiles(String, ScanBudget)}, handing each file to {@code onFileHashed} as soon as
+     * it is hashed. The listener is called from the read scheduler's threads and must be thread-safe.
+     */
+    public List<FileHashInfo> scanAndHashFiles(String pathString, ScanBudget budget, Consumer<FileHashInfo> onFileHashed) throws IOException {
         Path startPath = Paths.get(pathString);
         if (!Files.isDirectory(startPath)) {
             logger.error("Provided path is not a directory: {}", pathString);
@@ -64,22 +274,41 @@ public class FileHashingService {
 
         logger.info("Starting file scan and hashing for directory: {}", pathString);
 
-        try (Stream<Path> pathStream = Files.walk(startPath)) {
-            List<FileHashInfo> files = pathStream
-                    .filter(Files::isRegularFile)
-                    .map(this::getFileHashInfo)
-                    .filter(info -> info != null)
-                    .collect(Collectors.toList());
-
-            logger.info("Scan completed. Found {} files.", files.size());
-            if (files.isEmpty()) {
-                logger.warn("No files were found in the directory for processing.");
+        List<Path> paths = budget.walkRegularFiles(startPath, path -> true);
+        // Reads are ordered and parallelized per device by the scheduler.
+        List<FileHashInfo> files = readScheduler.schedule(paths, path -> {
+            FileHashInfo info = getFileHashInfo(path);
+            if (info != null) {
+                onFileHashed.accept(info);
             }
-            return files;
+            return info;
+        });
+
+        logger.info("Scan completed. Found {} files.", files.size());
+        if (files.isEmpty()) {
+            logger.warn("No files were found in the directory for processing.");
+        }
+        return files;
+    }
+
+    /**
+     * Lists the files under the directory with their names and sizes only; nothing is read, and the hash is left
+     * empty. Used by the NAME and COMPARE scans. Stops walking, marking the budget truncated, once the budget refuses more entries.
+     */
+    public List<FileHashInfo> scanFileNames(String pathString, ScanBudget budget) throws IOException {
+        List<FileHashInfo> files = new ArrayList<>();
+        for (Path path : budget.walkRegularFiles(Paths.get(pathString), path -> true)) {
+            files.add(new FileHashInfo(path.toString(), path.getFileName().toString(), "", getFileSize(path), 0));
         }
+        logger.info("Listed {} files in {}.", files.size(), pathString);
+        return files;
     }
-    private FileHashInfo getFileHashInfo(Path filePath) {
-        try (InputStream is = Files.newInputStream(filePath)) {
+
+    /**
+     * Hashes a single file. Returns null if the file could not be read.
+     */
+    FileHashInfo getFileHashInfo(Path filePath) {
+        try (InputStream is = readScheduler.open(filePath)) {
             String hash = DigestUtils.sha256Hex(is);
             long size = Files.size(filePath);
 
@@ -114,22 +343,36 @@ public class FileHashingService {
         }
     }
     public List<FileHashInfo> scanAndGetFileContent(String directoryPath) throws IOException {
+        return scanAndGetFileContent(directoryPath, ScanBudget.unbounded());
+    }
+
+    /**
+     * Reads file contents for the FUZZY scan within the scan's memory budget. Files whose content does not
+     * fit are kept index-only: their "hash" is a SHA-256 digest (hashSize 64) and they only match identical files.
+     * If even the index entry does not fit, walking stops and the budget is marked truncated.
+     */
+    public List<FileHashInfo> scanAndGetFileContent(String directoryPath, ScanBudget budget) throws IOException {
         List<FileHashInfo> fileInfos = new ArrayList<>();
-        try (Stream<Path> paths = Files.walk(Paths.get(directoryPath))) {
-            paths.filter(Files::isRegularFile)
-                    .forEach(path -> {
-                        try {
-                            // For this method, the "hash" is the file content itself.
-                            // WARNING: This can be memory-intensive for very large files.
-                            String content = new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
-                            long size = content.length();
-                            String fileName = path.getFileName().toString();
-                            // We don't need hashSize for this method.
-                            fileInfos.add(new FileHashInfo(path.toString(), fileName, content, size, 0));
-                        } catch (IOException e) {
-                            System.err.println("Could not read file content: " + path + " - " + e.getMessage());
-                        }
-                    });
+        for (Path path : budget.walkRegularFiles(Paths.get(directoryPath), path -> true)) {
+            try {
+                // The walk reserved the index entry; the content is reserved on top of it.
+                if (budget.reserve(2 * Files.size(path))) {
+                    // For this method, the "hash" is the file content itself.
+                    String content = new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+                    long size = content.length();
+                    String fileName = path.getFileName().toString();
+                    // We don't need hashSize for this method.
+                    fileInfos.add(new FileHashInfo(path.toString(), fileName, content, size, 0));
+                } else {
+                    budget.markDegraded();
+                    FileHashInfo info = getFileHashInfo(path);
+                    if (info != null) {
+                        fileInfos.add(info);
+                    }
+                }
+            } catch (IOException e) {
+                System.err.println("Could not read file content: " + path + " - " + e.getMessage());
+            }
         }
         return fileInfos;
     }
@@ -151,7 +394,11 @@ public class FileHashingService {
                     continue;
                 }
 
-                int distance = calculateLevenshteinDistance(allFiles.get(i).getHash(), allFiles.get(j).getHash());
+                // Index-only entries carry a digest instead of content, so they can only match exactly.
+                boolean indexOnly = allFiles.get(i).getHashSize() > 0 || allFiles.get(j).getHashSize() > 0;
+                int distance = indexOnly
+                        ? (allFiles.get(i).getHash().equals(allFiles.get(j).getHash()) ? 0 : Integer.MAX_VALUE)
+                        : calculateLevenshteinDistance(allFiles.get(i).getHash(), allFiles.get(j).getHash());
 
                 // ENHANCED LOGGING: See the comparison results in your backend console.
                 boolean isSimilar = distance <= distanceThreshold;
@@ -175,23 +422,30 @@ public class FileHashingService {
         return similarGroups;
     }
 
-    // Standard implementation of the Levenshtein Distance algorithm.
-    private int calculateLevenshteinDistance(String x, String y) {
-        int[][] dp = new int[x.length() + 1][y.length() + 1];
-
-        for (int i = 0; i <= x.length(); i++) {
-            for (int j = 0; j <= y.length(); j++) {
-                if (i == 0) {
-                    dp[i][j] = j;
-                } else if (j == 0) {
-                    dp[i][j] = i;
-                } else {
-                    dp[i][j] = Math.min(dp[i - 1][j - 1] + (x.charAt(i - 1) == y.charAt(j - 1) ? 0 : 1),
-                            Math.min(dp[i - 1][j] + 1, dp[i][j - 1] + 1));
-                }
+    // Standard implementation of the Levenshtein Distance algorithm, keeping only two rows of the table
+    // so memory stays proportional to the shorter string (a full table for two 50 KB files would need ~10 GB).
+    static int calculateLevenshteinDistance(String x, String y) {
+        if (x.length() < y.length()) {
+            String swap = x;
+            x = y;
+            y = swap;
+        }
+        int[] previous = new int[y.length() + 1];
+        int[] current = new int[y.length() + 1];
+        for (int j = 0; j <= y.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= x.length(); i++) {
+            current[0] = i;
+            for (int j = 1; j <= y.length(); j++) {
+                current[j] = Math.min(previous[j - 1] + (x.charAt(i - 1) == y.charAt(j - 1) ? 0 : 1),
+                        Math.min(previous[j] + 1, current[j - 1] + 1));
             }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
         }
-        return dp[x.length()][y.length()];
+        return previous[y.length()];
     }
     // NEW: Method to find empty folders
     public List<String> findEmptyFolders(String directoryPath) throws IOException {
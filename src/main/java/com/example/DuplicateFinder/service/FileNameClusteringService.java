@@ -0,0 +1,322 @@
+package com.example.DuplicateFinder.service;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.input.BoundedInputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.regex.MatchResult;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Clusters files whose names are near-duplicates, such as "report (1).pdf", "Copy of report.docx" and
+ * "report_final_v2.pdf". Names are normalized first (copy markers, version tokens and the extension are
+ * stripped), then compared through a trigram inverted index.
+ * <p>
+ * Only the rarest trigrams of each name are indexed (prefix filtering): two names whose trigram Jaccard
+ * similarity reaches the threshold must share one of them, so the index yields a short candidate list
+ * per name instead of every pair. Candidates are confirmed by Jaccard and edit similarity.
+ * <p>
+ * Numbers are identity, not noise: "img_0001" and "img_0002" are different photos even though their names are
+ * almost equal, and unioning such pairs would chain a whole camera roll into one cluster. Two names only match
+ * when they contain the same sequence of digit runs.
+ */
+@Service
+public class FileNameClusteringService {
+    private static final Logger logger = LoggerFactory.getLogger(FileNameClusteringService.class);
+
+    private static final Pattern COPY_PREFIX = Pattern.compile("^(?:copy(?:\\s*\\(\\d+\\))?\\s+of\\s+)+");
+    private static final Pattern COPY_OR_VERSION_SUFFIX = Pattern.compile(
+            "(?:\\s*[(\\[]\\d+[)\\]]|[\\s_.-]+(?:copy(?:\\s*\\(?\\d+\\)?)?|v\\d+(?:[._]\\d+)*|rev\\.?\\s*\\d+"
+                    + "|final|draft|latest|old|new|backup|bak))+$");
+    private static final Pattern SEPARATORS = Pattern.compile("[\\s_.-]+");
+    private static final Pattern DIGIT_RUN = Pattern.compile("\\d+");
+    private static final int PARTIAL_HASH_BYTES = 4096;
+    private static final double MIN_SIZE_RATIO = 0.9;
+
+    /**
+     * How cluster members are checked against each other after their names matched.
+     */
+    public enum CrossCheck {
+        /** Names alone decide. */
+        NONE,
+        /** Members must be within 10% of each other's size. */
+        SIZE,
+        /** Members must share a SHA-256 of their first 4 KB. */
+        PARTIAL
+    }
+
+    private final ReadScheduler readScheduler;
+
+    public FileNameClusteringService(ReadScheduler readScheduler) {
+        this.readScheduler = readScheduler;
+    }
+
+    /**
+     * @param files         The scanned files; only their names (and, for cross-checks, sizes or contents) are used.
+     * @param minSimilarity Minimum trigram Jaccard and edit similarity, between 0 and 1, of two normalized names.
+     * @return Groups of two or more files with near-duplicate names.
+     */
+    public List<List<FileHashInfo>> findSimilarNames(List<FileHashInfo> files, double minSimilarity, CrossCheck crossCheck) {
+        // 1. Files with the same normalized name are one entry from here on.
+        Map<String, List<FileHashInfo>> filesByName = new LinkedHashMap<>();
+        for (FileHashInfo file : files) {
+            filesByName.computeIfAbsent(normalize(file.getFileName()), k -> new ArrayList<>()).add(file);
+        }
+        List<String> names = new ArrayList<>(filesByName.keySet());
+
+        // 2. Turn each name into trigram ids ordered from rarest to most common.
+        int[][] trigrams = rankedTrigrams(names);
+        List<List<String>> numbers = names.stream().map(FileNameClusteringService::digitRuns).collect(Collectors.toList());
+
+        // 3. Index each name's prefix and probe it with the other prefixes; all confirmed pairs are unioned.
+        int[] parent = new int[names.size()];
+        for (int i = 0; i < parent.length; i++) {
+            parent[i] = i;
+        }
+        int[][] postings = prefixPostings(trigrams, minSimilarity);
+        int[] seen = new int[names.size()];
+        Arrays.fill(seen, -1);
+        long candidates = 0;
+        for (int i = 0; i < names.size(); i++) {
+            int[] mine = trigrams[i];
+            for (int p = 0; p < prefixLength(mine.length, minSimilarity); p++) {
+                for (int j : postings[mine[p]]) {
+                    if (j <= i || seen[j] == i) {
+                        continue;
+                    }
+                    seen[j] = i;
+                    int[] theirs = trigrams[j];
+                    if (Math.min(mine.length, theirs.length) < minSimilarity * Math.max(mine.length, theirs.length)
+                            || !numbers.get(i).equals(numbers.get(j))) {
+                        continue;
+                    }
+                    candidates++;
+                    if (jaccard(mine, theirs) >= minSimilarity && editSimilarity(names.get(i), names.get(j)) >= minSimilarity) {
+                        int a = find(parent, i);
+                        int b = find(parent, j);
+                        if (a != b) {
+                            parent[Math.max(a, b)] = Math.min(a, b);
+                        }
+                    }
+                }
+            }
+        }
+
+        Map<Integer, List<FileHashInfo>> clusters = new LinkedHashMap<>();
+        for (int i = 0; i < names.size(); i++) {
+            clusters.computeIfAbsent(find(parent, i), k -> new ArrayList<>()).addAll(filesByName.get(names.get(i)));
+        }
+        List<List<FileHashInfo>> groups = clusters.values().stream()
+                .filter(group -> group.size() > 1)
+                .collect(Collectors.toList());
+        logger.info("Compared {} candidate pairs among {} distinct names; found {} name clusters.", candidates, names.size(), groups.size());
+
+        // 4. Optionally split clusters whose members clearly differ.
+        if (crossCheck == CrossCheck.SIZE) {
+            groups = splitBySize(groups);
+        } else if (crossCheck == CrossCheck.PARTIAL) {
+            groups = splitByPartialHash(groups);
+        }
+        return groups;
+    }
+
+    /**
+     * Lower-cases the name and removes the extension, "copy of" prefixes and trailing copy markers or
+     * version tokens, then collapses separators to single spaces.
+     */
+    static String normalize(String fileName) {
+        String name = fileName.toLowerCase(Locale.ROOT);
+        int dot = name.lastIndexOf('.');
+        if (dot > 0) {
+            name = name.substring(0, dot);
+        }
+        name = COPY_PREFIX.matcher(name).replaceFirst("");
+        name = COPY_OR_VERSION_SUFFIX.matcher(name).replaceFirst("");
+        name = SEPARATORS.matcher(name).replaceAll(" ").trim();
+        return name.isEmpty() ? fileName.toLowerCase(Locale.ROOT) : name;
+    }
+
+    static List<String> digitRuns(String name) {
+        return DIGIT_RUN.matcher(name).results().map(MatchResult::group).collect(Collectors.toList());
+    }
+
+    /**
+     * Gives every distinct trigram an id by ascending document frequency, so sorting a name's ids puts its
+     * rarest trigrams first. Names are padded like pg_trgm does ("  name ") so short names still have trigrams.
+     */
+    private static int[][] rankedTrigrams(List<String> names) {
+        Map<Long, Integer> rawIds = new HashMap<>();
+        List<int[]> rawSets = new ArrayList<>(names.size());
+        int[] frequency = new int[1024];
+        for (String name : names) {
+            String padded = "  " + name + " ";
+            Set<Integer> ids = new HashSet<>();
+            for (int k = 0; k + 3 <= padded.length(); k++) {
+                long key = ((long) padded.charAt(k) << 32) | ((long) padded.charAt(k + 1) << 16) | padded.charAt(k + 2);
+                Integer id = rawIds.get(key);
+                if (id == null) {
+                    id = rawIds.size();
+                    rawIds.put(key, id);
+                    if (id == frequency.length) {
+                        frequency = Arrays.copyOf(frequency, id * 2);
+                    }
+                }
+                if (ids.add(id)) {
+                    frequency[id]++;
+                }
+            }
+            rawSets.add(ids.stream().mapToInt(Integer::intValue).toArray());
+        }
+
+        int[] freq = frequency;
+        Integer[] order = new Integer[rawIds.size()];
+        for (int id = 0; id < order.length; id++) {
+            order[id] = id;
+        }
+        Arrays.sort(order, Comparator.comparingInt((Integer id) -> freq[id]).thenComparingInt(id -> id));
+        int[] rank = new int[order.length];
+        for (int r = 0; r < order.length; r++) {
+            rank[order[r]] = r;
+        }
+
+        int[][] ranked = new int[rawSets.size()][];
+        for (int i = 0; i < ranked.length; i++) {
+            int[] set = rawSets.get(i);
+            for (int k = 0; k < set.length; k++) {
+                set[k] = rank[set[k]];
+            }
+            Arrays.sort(set);
+            ranked[i] = set;
+        }
+        return ranked;
+    }
+
+    private static int[][] prefixPostings(int[][] trigrams, double minSimilarity) {
+        int vocabulary = 0;
+        for (int[] set : trigrams) {
+            for (int id : set) {
+                vocabulary = Math.max(vocabulary, id + 1);
+            }
+        }
+        int[] counts = new int[vocabulary];
+        for (int[] set : trigrams) {
+            for (int p = 0; p < prefixLength(set.length, minSimilarity); p++) {
+                counts[set[p]]++;
+            }
+        }
+        int[][] postings = new int[vocabulary][];
+        for (int id = 0; id < vocabulary; id++) {
+            postings[id] = new int[counts[id]];
+        }
+        int[] fill = new int[vocabulary];
+        for (int i = 0; i < trigrams.length; i++) {
+            int[] set = trigrams[i];
+            for (int p = 0; p < prefixLength(set.length, minSimilarity); p++) {
+                postings[set[p]][fill[set[p]]++] = i;
+            }
+        }
+        return postings;
+    }
+
+    /**
+     * Sets A and B with Jaccard >= t share at least one of the first |A| - ceil(t|A|) + 1 elements of each.
+     */
+    private static int prefixLength(int size, double minSimilarity) {
+        return Math.min(size, size - (int) Math.ceil(minSimilarity * size) + 1);
+    }
+
+    private static double jaccard(int[] a, int[] b) {
+        int shared = 0;
+        for (int i = 0, j = 0; i < a.length && j < b.length; ) {
+            if (a[i] == b[j]) {
+                shared++;
+                i++;
+                j++;
+            } else if (a[i] < b[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return (double) shared / (a.length + b.length - shared);
+    }
+
+    private static double editSimilarity(String a, String b) {
+        int longest = Math.max(a.length(), b.length());
+        return longest == 0 ? 1.0 : 1.0 - (double) FileHashingService.calculateLevenshteinDistance(a, b) / longest;
+    }
+
+    /**
+     * Sorts each cluster by size and cuts it wherever a file is more than 10% larger than the previous one.
+     */
+    private static List<List<FileHashInfo>> splitBySize(List<List<FileHashInfo>> groups) {
+        List<List<FileHashInfo>> result = new ArrayList<>();
+        for (List<FileHashInfo> group : groups) {
+            List<FileHashInfo> sorted = new ArrayList<>(group);
+            sorted.sort(Comparator.comparingLong(FileHashInfo::getSize));
+            List<FileHashInfo> current = new ArrayList<>();
+            for (FileHashInfo file : sorted) {
+                if (!current.isEmpty() && current.get(current.size() - 1).getSize() < MIN_SIZE_RATIO * file.getSize()) {
+                    addIfGroup(result, current);
+                    current = new ArrayList<>();
+                }
+                current.add(file);
+            }
+            addIfGroup(result, current);
+        }
+        return result;
+    }
+
+    private List<List<FileHashInfo>> splitByPartialHash(List<List<FileHashInfo>> groups) {
+        List<Path> paths = groups.stream()
+                .flatMap(List::stream)
+                .map(file -> Paths.get(file.getPath()))
+                .collect(Collectors.toList());
+        Map<String, String> headHashes = readScheduler.schedule(paths, this::headHash).stream()
+                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+
+        List<List<FileHashInfo>> result = new ArrayList<>();
+        for (List<FileHashInfo> group : groups) {
+            Map<String, List<FileHashInfo>> byHead = new LinkedHashMap<>();
+            for (FileHashInfo file : group) {
+                String head = headHashes.get(file.getPath());
+                if (head != null) {
+                    byHead.computeIfAbsent(head, k -> new ArrayList<>()).add(file);
+                }
+            }
+            byHead.values().forEach(split -> addIfGroup(result, split));
+        }
+        return result;
+    }
+
+    private Map.Entry<String, String> headHash(Path path) {
+        try (InputStream is = new BoundedInputStream(readScheduler.open(path), PARTIAL_HASH_BYTES)) {
+            return Map.entry(path.toString(), DigestUtils.sha256Hex(is));
+        } catch (IOException e) {
+            logger.error("Failed to read head of file: {}. Reason: {}", path, e.getMessage());
+            return null;
+        }
+    }
+
+    private static void addIfGroup(List<List<FileHashInfo>> result, List<FileHashInfo> group) {
+        if (group.size() > 1) {
+            result.add(group);
+        }
+    }
+
+    private static int find(int[] parent, int node) {
+        while (parent[node] != node) {
+            parent[node] = parent[parent[node]];
+            node = parent[node];
+        }
+        return node;
+    }
+}
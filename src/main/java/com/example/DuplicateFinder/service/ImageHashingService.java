@@ -0,0 +1,234 @@
+package com.example.DuplicateFinder.service;
+
+import jakarta.annotation.PreDestroy;
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Collectors;
+
+/**
+ * Finds visually similar images with a 64-bit difference hash (dHash): the image is reduced to a 9x8
+ * grayscale grid and each bit records whether a cell is brighter than its right-hand neighbour.
+ * Resized, recompressed or slightly edited copies end up a few bits apart. Hashes are indexed in a
+ * {@link BkTree}, so similarity queries do not compare every pair of images.
+ * <p>
+ * Files are read on the {@link ReadScheduler} like any other scan, so device ordering and HDD concurrency
+ * limits apply; only the decoding runs on a separate CPU pool.
+ */
+@Service
+public class ImageHashingService {
+    private static final Logger logger = LoggerFactory.getLogger(ImageHashingService.class);
+
+    private static final int GRID_WIDTH = 9;
+    private static final int GRID_HEIGHT = 8;
+    // Images are decoded with subsampling to roughly this many pixels per side; plenty for a 9x8 grid.
+    private static final int DECODE_TARGET_SIZE = 128;
+    // Read images waiting to be decoded, per decode thread; keeps fast disks from piling up encoded bytes.
+    private static final int IN_FLIGHT_PER_DECODER = 2;
+
+    private final ReadScheduler readScheduler;
+    private final Set<String> imageSuffixes;
+    // Decoding is CPU-bound, so it gets its own pool sized to the cores rather than the per-device read pools.
+    private final ForkJoinPool decodePool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+    public ImageHashingService(ReadScheduler readScheduler) {
+        this.readScheduler = readScheduler;
+        this.imageSuffixes = Arrays.stream(ImageIO.getReaderFileSuffixes())
+                .map(String::toLowerCase)
+                .collect(Collectors.toSet());
+    }
+
+    /**
+     * Computes the perceptual hash of every image ImageIO can decode under the directory.
+     * The hash is stored as 16 hex characters; files that fail to decode are skipped.
+     */
+    public List<FileHashInfo> scanAndHashImages(String pathString, ScanBudget budget) throws IOException {
+        Path startPath = Paths.get(pathString);
+        if (!Files.isDirectory(startPath)) {
+            logger.error("Provided path is not a directory: {}", pathString);
+            return Collections.emptyList();
+        }
+
+        List<Path> paths = budget.walkRegularFiles(startPath, this::isImage);
+
+        logger.info("Computing perceptual hashes for {} images in {}.", paths.size(), pathString);
+        Semaphore inFlight = new Semaphore(IN_FLIGHT_PER_DECODER * decodePool.getParallelism());
+        List<Future<FileHashInfo>> decoding = readScheduler.schedule(paths, path -> readAndDecode(path, inFlight));
+        List<FileHashInfo> images = new ArrayList<>(decoding.size());
+        for (Future<FileHashInfo> future : decoding) {
+            try {
+                FileHashInfo image = future.get();
+                if (image != null) {
+                    images.add(image);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                decoding.forEach(pending -> pending.cancel(true));
+                throw new IOException("Interrupted while hashing images", e);
+            } catch (ExecutionException e) {
+                logger.error("Failed to hash image. Reason: {}", e.getCause().getMessage());
+            }
+        }
+        logger.info("Image scan completed. Hashed {} images.", images.size());
+        return images;
+    }
+
+    /**
+     * Groups images whose hashes are within {@code maxDistance} bits of each other (transitively).
+     */
+    public List<List<FileHashInfo>> findSimilarImages(List<FileHashInfo> images, int maxDistance) {
+        // 1. Index distinct hashes; identical hashes share a node.
+        BkTree tree = new BkTree();
+        Map<Integer, List<FileHashInfo>> imagesByNode = new HashMap<>();
+        for (FileHashInfo image : images) {
+            int node = tree.add(Long.parseUnsignedLong(image.getHash(), 16));
+            imagesByNode.computeIfAbsent(node, k -> new ArrayList<>()).add(image);
+        }
+
+        // 2. Union each hash with its neighbours from a range query.
+        int[] parent = new int[tree.size()];
+        for (int i = 0; i < parent.length; i++) {
+            parent[i] = i;
+        }
+        for (int node = 0; node < tree.size(); node++) {
+            for (int neighbour : tree.search(tree.value(node), maxDistance)) {
+                int a = find(parent, node);
+                int b = find(parent, neighbour);
+                if (a != b) {
+                    parent[Math.max(a, b)] = Math.min(a, b);
+                }
+            }
+        }
+
+        Map<Integer, List<FileHashInfo>> groups = new LinkedHashMap<>();
+        for (int node = 0; node < tree.size(); node++) {
+            groups.computeIfAbsent(find(parent, node), k -> new ArrayList<>()).addAll(imagesByNode.get(node));
+        }
+        List<List<FileHashInfo>> similarGroups = groups.values().stream()
+                .filter(group -> group.size() > 1)
+                .collect(Collectors.toList());
+        logger.info("Found {} groups of similar images among {} distinct hashes.", similarGroups.size(), tree.size());
+        return similarGroups;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        decodePool.shutdownNow();
+    }
+
+    private boolean isImage(Path path) {
+        String name = path.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return dot >= 0 && imageSuffixes.contains(name.substring(dot + 1).toLowerCase());
+    }
+
+    /**
+     * Runs on a read thread: reads the encoded image and hands it to the decode pool.
+     */
+    private Future<FileHashInfo> readAndDecode(Path path, Semaphore inFlight) {
+        inFlight.acquireUninterruptibly();
+        byte[] data;
+        try (InputStream is = readScheduler.open(path)) {
+            data = IOUtils.toByteArray(is);
+        } catch (IOException e) {
+            inFlight.release();
+            logger.error("Failed to read image: {}. Reason: {}", path, e.getMessage());
+            return null;
+        }
+        return decodePool.submit(() -> {
+            try {
+                return hashImage(path, data);
+            } finally {
+                inFlight.release();
+            }
+        });
+    }
+
+    private FileHashInfo hashImage(Path path, byte[] data) {
+        // The bytes are already in memory; ImageIO.createImageInputStream would copy them into a temp-file cache.
+        try (ImageInputStream iis = new MemoryCacheImageInputStream(new ByteArrayInputStream(data))) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(iis);
+            if (!readers.hasNext()) {
+                logger.debug("No image reader for {}", path);
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(iis, true, true);
+                ImageReadParam param = reader.getDefaultReadParam();
+                int xStep = Math.max(1, reader.getWidth(0) / DECODE_TARGET_SIZE);
+                int yStep = Math.max(1, reader.getHeight(0) / DECODE_TARGET_SIZE);
+                param.setSourceSubsampling(xStep, yStep, 0, 0);
+                BufferedImage image = reader.read(0, param);
+
+                String hash = String.format("%016x", differenceHash(image));
+                return new FileHashInfo(path.toString(), path.getFileName().toString(), hash, data.length, hash.length());
+            } finally {
+                reader.dispose();
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.error("Failed to hash image: {}. Reason: {}", path, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Averages luminance over a 9x8 grid and sets one bit per horizontally adjacent pair of cells.
+     */
+    static long differenceHash(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        double[] sums = new double[GRID_WIDTH * GRID_HEIGHT];
+        int[] counts = new int[GRID_WIDTH * GRID_HEIGHT];
+        int[] row = new int[width];
+        for (int y = 0; y < height; y++) {
+            image.getRGB(0, y, width, 1, row, 0, width);
+            int cellRow = y * GRID_HEIGHT / height * GRID_WIDTH;
+            for (int x = 0; x < width; x++) {
+                int rgb = row[x];
+                double luminance = 0.299 * ((rgb >> 16) & 0xff) + 0.587 * ((rgb >> 8) & 0xff) + 0.114 * (rgb & 0xff);
+                int cell = cellRow + x * GRID_WIDTH / width;
+                sums[cell] += luminance;
+                counts[cell]++;
+            }
+        }
+
+        long hash = 0;
+        for (int y = 0; y < GRID_HEIGHT; y++) {
+            for (int x = 0; x < GRID_WIDTH - 1; x++) {
+                int left = y * GRID_WIDTH + x;
+                double leftMean = counts[left] == 0 ? 0 : sums[left] / counts[left];
+                double rightMean = counts[left + 1] == 0 ? 0 : sums[left + 1] / counts[left + 1];
+                hash = (hash << 1) | (leftMean > rightMean ? 1 : 0);
+            }
+        }
+        return hash;
+    }
+
+    private static int find(int[] parent, int node) {
+        while (parent[node] != node) {
+            parent[node] = parent[parent[node]];
+            node = parent[node];
+        }
+        return node;
+    }
+}
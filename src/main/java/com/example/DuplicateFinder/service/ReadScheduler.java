@@ -0,0 +1,230 @@
+package com.example.DuplicateFinder.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Function;
+
+/**
+ * Schedules file reads so that hashing does not turn into a seek storm.
+ * Pending jobs are grouped by the device ({@link FileStore}) they live on and ordered by inode
+ * (or by path where inodes are unavailable) within each device. Every device gets its own worker
+ * pool, sized for SSDs or for spinning disks, which is shared by all concurrent scans.
+ * An optional global bytes-per-second limit keeps scans from starving other users of the disks.
+ */
+@Service
+public class ReadScheduler {
+    private static final Logger logger = LoggerFactory.getLogger(ReadScheduler.class);
+
+    private final int ssdConcurrency;
+    private final int hddConcurrency;
+    private final RateLimiter rateLimiter;
+    private final boolean inodesSupported = FileSystems.getDefault().supportedFileAttributeViews().contains("unix");
+    private final Map<String, ExecutorService> deviceExecutors = new ConcurrentHashMap<>();
+
+    public ReadScheduler(@Value("${duplicatefinder.io.ssd-concurrency:0}") int ssdConcurrency,
+                         @Value("${duplicatefinder.io.hdd-concurrency:1}") int hddConcurrency,
+                         @Value("${duplicatefinder.io.max-bytes-per-second:0}") long maxBytesPerSecond) {
+        this.ssdConcurrency = ssdConcurrency > 0 ? ssdConcurrency : Runtime.getRuntime().availableProcessors();
+        this.hddConcurrency = Math.max(1, hddConcurrency);
+        this.rateLimiter = maxBytesPerSecond > 0 ? new RateLimiter(maxBytesPerSecond) : null;
+    }
+
+    /**
+     * Runs {@code job} for every path in device- and locality-aware order and waits for all of them.
+     *
+     * @return The non-null job results, in the same order as {@code paths}.
+     */
+    public <T> List<T> schedule(List<Path> paths, Function<Path, T> job) {
+        // 1. Group by device, remembering each path's position so results come back in input order.
+        Map<Path, FileStore> storeByDirectory = new HashMap<>();
+        Map<FileStore, List<ReadJob>> jobsByStore = new LinkedHashMap<>();
+        for (int i = 0; i < paths.size(); i++) {
+            Path path = paths.get(i);
+            FileStore store = storeByDirectory.computeIfAbsent(path.toAbsolutePath().getParent(), this::fileStore);
+            jobsByStore.computeIfAbsent(store, k -> new ArrayList<>()).add(new ReadJob(i, path, inode(path)));
+        }
+
+        // 2. Submit each device's jobs in inode order to that device's pool.
+        List<Future<T>> futures = new ArrayList<>(Collections.nCopies(paths.size(), null));
+        for (Map.Entry<FileStore, List<ReadJob>> entry : jobsByStore.entrySet()) {
+            ExecutorService executor = executorFor(entry.getKey());
+            List<ReadJob> jobs = entry.getValue();
+            jobs.sort(Comparator.comparingLong((ReadJob readJob) -> readJob.inode)
+                    .thenComparing(readJob -> readJob.path.toString()));
+            for (ReadJob readJob : jobs) {
+                futures.set(readJob.index, executor.submit(() -> job.apply(readJob.path)));
+            }
+        }
+
+        // 3. Collect. A failed job is logged and skipped, like an unreadable file.
+        List<T> results = new ArrayList<>(paths.size());
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                T result = futures.get(i).get();
+                if (result != null) {
+                    results.add(result);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                futures.forEach(future -> future.cancel(true));
+                logger.warn("Interrupted while waiting for scheduled reads.");
+                break;
+            } catch (ExecutionException e) {
+                logger.error("Failed to process file: {}. Reason: {}", paths.get(i), e.getCause().getMessage());
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Opens a file for reading, subject to the configured bytes-per-second limit.
+     */
+    public InputStream open(Path path) throws IOException {
+        InputStream is = Files.newInputStream(path);
+        return rateLimiter == null ? is : new ThrottledInputStream(is);
+    }
+
+    /**
+     * Accounts for bytes read outside {@link #open(Path)}, blocking if the configured rate is exceeded.
+     */
+    public void throttle(long bytes) {
+        if (rateLimiter != null && bytes > 0) {
+            rateLimiter.acquire(bytes);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        deviceExecutors.values().forEach(ExecutorService::shutdownNow);
+    }
+
+    private ExecutorService executorFor(FileStore store) {
+        String device = store == null ? "unknown" : store.name();
+        return deviceExecutors.computeIfAbsent(device, name -> {
+            boolean rotational = store != null && isRotational(store);
+            int threads = rotational ? hddConcurrency : ssdConcurrency;
+            logger.info("Using {} read thread(s) for device {} ({}).", threads, name, rotational ? "rotational" : "non-rotational");
+            ThreadFactory threadFactory = runnable -> {
+                Thread thread = new Thread(runnable, "read-" + name);
+                thread.setDaemon(true);
+                return thread;
+            };
+            return Executors.newFixedThreadPool(threads, threadFactory);
+        });
+    }
+
+    private FileStore fileStore(Path directory) {
+        try {
+            return Files.getFileStore(directory);
+        } catch (IOException e) {
+            logger.warn("Could not determine file store of {}: {}", directory, e.getMessage());
+            return null;
+        }
+    }
+
+    private long inode(Path path) {
+        if (!inodesSupported) {
+            return 0L;
+        }
+        try {
+            return ((Number) Files.getAttribute(path, "unix:ino", LinkOption.NOFOLLOW_LINKS)).longValue();
+        } catch (IOException | UnsupportedOperationException | IllegalArgumentException e) {
+            return 0L;
+        }
+    }
+
+    /**
+     * Reads {@code /sys/class/block/<device>/queue/rotational} on Linux. Anything that cannot be
+     * resolved (other platforms, network or virtual file systems) is treated as non-rotational.
+     */
+    private static boolean isRotational(FileStore store) {
+        try {
+            Path device = Paths.get(store.name());
+            if (!device.isAbsolute() || !Files.exists(device)) {
+                return false;
+            }
+            Path block = Paths.get("/sys/class/block", device.toRealPath().getFileName().toString());
+            Path rotational = block.resolve("queue/rotational");
+            if (!Files.exists(rotational) && Files.exists(block)) {
+                // Partitions have no queue of their own; use the parent disk's.
+                rotational = block.toRealPath().getParent().resolve("queue/rotational");
+            }
+            return Files.exists(rotational) && "1".equals(Files.readString(rotational).trim());
+        } catch (IOException | InvalidPathException e) {
+            return false;
+        }
+    }
+
+    private static final class ReadJob {
+        private final int index;
+        private final Path path;
+        private final long inode;
+
+        private ReadJob(int index, Path path, long inode) {
+            this.index = index;
+            this.path = path;
+            this.inode = inode;
+        }
+    }
+
+    /**
+     * A token bucket holding at most one second worth of bytes.
+     */
+    private static final class RateLimiter {
+        private final long bytesPerSecond;
+        private double available;
+        private long lastRefill = System.nanoTime();
+
+        private RateLimiter(long bytesPerSecond) {
+            this.bytesPerSecond = bytesPerSecond;
+            this.available = bytesPerSecond;
+        }
+
+        private synchronized void acquire(long bytes) {
+            long now = System.nanoTime();
+            available = Math.min(bytesPerSecond, available + (now - lastRefill) * bytesPerSecond / 1e9);
+            lastRefill = now;
+            available -= bytes;
+            if (available < 0) {
+                long waitNanos = (long) (-available * 1e9 / bytesPerSecond);
+                try {
+                    TimeUnit.NANOSECONDS.sleep(waitNanos);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    private final class ThrottledInputStream extends FilterInputStream {
+        private ThrottledInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                throttle(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = super.read(b, off, len);
+            throttle(read);
+            return read;
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.DuplicateFinder.service;
+
+import com.example.DuplicateFinder.dto.DirectoryRollup;
+import com.example.DuplicateFinder.dto.DuplicateGroupSummary;
+import com.example.DuplicateFinder.dto.HistogramBucket;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Collects aggregates while a scan runs: bounded top-N heaps, size and extension histograms and directory
+ * totals rolled up to every ancestor. Each file costs O(log N + depth), so the finished
+ * {@link AnalyticsReport} can answer queries without looking at individual files again.
+ * Safe to feed from the read scheduler's worker threads.
+ */
+public class ScanAnalytics implements Consumer<FileHashInfo> {
+    private final Path root;
+    private final int topN;
+    private final PriorityQueue<FileHashInfo> largestFiles = new PriorityQueue<>(Comparator.comparingLong(FileHashInfo::getSize));
+    private final PriorityQueue<DuplicateGroupSummary> largestGroups =
+            new PriorityQueue<>(Comparator.comparingLong(DuplicateGroupSummary::getReclaimableBytes));
+    // Bucket k holds sizes in [2^(k-1), 2^k); bucket 0 holds empty files.
+    private final long[] sizeCounts = new long[64];
+    private final long[] sizeBytes = new long[64];
+    private final Map<String, long[]> extensions = new HashMap<>();
+    private final Map<Path, long[]> directories = new HashMap<>();
+
+    public ScanAnalytics(String rootPath, int topN) {
+        this.root = Paths.get(rootPath).toAbsolutePath().normalize();
+        this.topN = topN;
+    }
+
+    @Override
+    public synchronized void accept(FileHashInfo file) {
+        long size = file.getSize();
+        offer(largestFiles, file);
+
+        int bucket = 64 - Long.numberOfLeadingZeros(size);
+        sizeCounts[bucket]++;
+        sizeBytes[bucket] += size;
+
+        String fileName = file.getFileName();
+        int dot = fileName.lastIndexOf('.');
+        String extension = dot > 0 ? fileName.substring(dot + 1).toLowerCase() : "";
+        long[] extensionTotals = extensions.computeIfAbsent(extension, k -> new long[2]);
+        extensionTotals[0]++;
+        extensionTotals[1] += size;
+
+        for (Path directory = Paths.get(file.getPath()).toAbsolutePath().normalize().getParent();
+             directory != null && directory.startsWith(root);
+             directory = directory.getParent()) {
+            long[] totals = directories.computeIfAbsent(directory, k -> new long[3]);
+            totals[0] += size;
+            totals[1]++;
+        }
+    }
+
+    /**
+     * Adds duplicate groups once they are known. Every copy after the first counts as reclaimable in
+     * each of its directories; virtual archive paths are credited to the directories that contain the archive.
+     */
+    public synchronized void recordDuplicates(Map<String, List<FileHashInfo>> duplicates) {
+        for (Map.Entry<String, List<FileHashInfo>> group : duplicates.entrySet()) {
+            List<FileHashInfo> files = group.getValue();
+            long size = files.get(0).getSize();
+            offer(largestGroups, new DuplicateGroupSummary(group.getKey(), size,
+                    files.stream().map(FileHashInfo::getPath).collect(Collectors.toList()), size * (files.size() - 1)));
+
+            for (FileHashInfo copy : files.subList(1, files.size())) {
+                for (Path directory = Paths.get(copy.getPath()).toAbsolutePath().normalize().getParent();
+                     directory != null && directory.startsWith(root);
+                     directory = directory.getParent()) {
+                    long[] totals = directories.get(directory);
+                    if (totals != null) {
+                        totals[2] += size;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @param truncated Whether the scan stopped early, so the report covers only part of the tree.
+     */
+    public synchronized AnalyticsReport finish(boolean truncated) {
+        List<FileHashInfo> files = new ArrayList<>(largestFiles);
+        files.sort(Comparator.comparingLong(FileHashInfo::getSize).reversed());
+        List<DuplicateGroupSummary> groups = new ArrayList<>(largestGroups);
+        groups.sort(Comparator.comparingLong(DuplicateGroupSummary::getReclaimableBytes).reversed());
+
+        List<HistogramBucket> sizeHistogram = new ArrayList<>();
+        for (int bucket = 0; bucket < sizeCounts.length; bucket++) {
+            if (sizeCounts[bucket] > 0) {
+                sizeHistogram.add(new HistogramBucket(bucketLabel(bucket), sizeCounts[bucket], sizeBytes[bucket]));
+            }
+        }
+        List<HistogramBucket> extensionHistogram = extensions.entrySet().stream()
+                .map(entry -> new HistogramBucket(entry.getKey(), entry.getValue()[0], entry.getValue()[1]))
+                .sorted(Comparator.comparingLong(HistogramBucket::getBytes).reversed())
+                .collect(Collectors.toList());
+
+        Map<String, DirectoryRollup> rollups = new HashMap<>();
+        Map<String, List<DirectoryRollup>> children = new HashMap<>();
+        PriorityQueue<DirectoryRollup> largestDirectories = new PriorityQueue<>(Comparator.comparingLong(DirectoryRollup::getTotalBytes));
+        PriorityQueue<DirectoryRollup> wastefulDirectories = new PriorityQueue<>(Comparator.comparingLong(DirectoryRollup::getReclaimableBytes));
+        for (Map.Entry<Path, long[]> entry : directories.entrySet()) {
+            long[] totals = entry.getValue();
+            DirectoryRollup rollup = new DirectoryRollup(entry.getKey().toString(), totals[0], totals[1], totals[2]);
+            rollups.put(rollup.getDirectory(), rollup);
+            if (!entry.getKey().equals(root)) {
+                children.computeIfAbsent(entry.getKey().getParent().toString(), k -> new ArrayList<>()).add(rollup);
+                offer(largestDirectories, rollup);
+                if (rollup.getReclaimableBytes() > 0) {
+                    offer(wastefulDirectories, rollup);
+                }
+            }
+        }
+        children.values().forEach(list -> list.sort(Comparator.comparingLong(DirectoryRollup::getTotalBytes).reversed()));
+        List<DirectoryRollup> directoriesBySize = new ArrayList<>(largestDirectories);
+        directoriesBySize.sort(Comparator.comparingLong(DirectoryRollup::getTotalBytes).reversed());
+        List<DirectoryRollup> directoriesByWaste = new ArrayList<>(wastefulDirectories);
+        directoriesByWaste.sort(Comparator.comparingLong(DirectoryRollup::getReclaimableBytes).reversed());
+
+        return new AnalyticsReport(root.toString(), truncated, files, groups, directoriesBySize, directoriesByWaste,
+                sizeHistogram, extensionHistogram, rollups, children);
+    }
+
+    private <T> void offer(PriorityQueue<T> heap, T item) {
+        heap.offer(item);
+        if (heap.size() > topN) {
+            heap.poll();
+        }
+    }
+
+    private static String bucketLabel(int bucket) {
+        if (bucket == 0) {
+            return "0 B";
+        }
+        return "[" + (1L << (bucket - 1)) + ", " + (bucket == 63 ? "inf" : String.valueOf(1L << bucket)) + ") B";
+    }
+}
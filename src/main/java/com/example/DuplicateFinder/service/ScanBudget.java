@@ -0,0 +1,119 @@
+package com.example.DuplicateFinder.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * The heap allowance of a single scan, handed out by {@link ScanResourceGovernor#admit(String)}.
+ * Scanners call {@link #reserve(long)} before holding on to more data; a refused reservation
+ * means the scan should degrade (keep less per file) or stop walking, never keep growing.
+ * Closing the budget returns everything it reserved to the governor.
+ */
+public class ScanBudget implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(ScanBudget.class);
+
+    private final ScanResourceGovernor governor;
+    private final long limit;
+    // Guarded by the governor's monitor.
+    long used;
+    boolean slotHeld = true;
+    // Set once the governor took back the reserved heap; later reservations are refused.
+    boolean released;
+    private volatile boolean degraded;
+    private volatile boolean truncated;
+    private boolean closed;
+
+    ScanBudget(ScanResourceGovernor governor, long limit) {
+        this.governor = governor;
+        this.limit = limit;
+    }
+
+    /**
+     * A budget that accepts every reservation, for callers outside the governed scan endpoints.
+     */
+    public static ScanBudget unbounded() {
+        return new ScanBudget(null, Long.MAX_VALUE);
+    }
+
+    /**
+     * Rough heap cost of keeping one {@link FileHashInfo} with a hex digest for the given path.
+     */
+    public static long estimateEntry(Path path) {
+        return 192 + 2L * path.toString().length();
+    }
+
+    /**
+     * Lists the regular files under the directory that match the filter, reserving an index entry for each.
+     * Once a reservation is refused the walk stops and the budget is marked truncated, so the caller gets the
+     * files listed so far.
+     */
+    public List<Path> walkRegularFiles(Path start, Predicate<Path> filter) throws IOException {
+        List<Path> paths = new ArrayList<>();
+        try (Stream<Path> pathStream = Files.walk(start)) {
+            for (Path path : (Iterable<Path>) pathStream.filter(Files::isRegularFile).filter(filter)::iterator) {
+                if (!reserve(estimateEntry(path))) {
+                    logger.warn("Scan memory budget reached after {} files. Returning partial results for {}.", paths.size(), start);
+                    markTruncated();
+                    break;
+                }
+                paths.add(path);
+            }
+        }
+        return paths;
+    }
+
+    /**
+     * Reserves heap for this scan, waiting for other scans to release memory if the global budget is in use.
+     *
+     * @return false if the scan's own limit is reached or the global budget stayed exhausted.
+     */
+    public boolean reserve(long bytes) {
+        return governor == null || governor.reserve(this, bytes);
+    }
+
+    /**
+     * Gives the scan slot back while keeping the reserved heap, for indexes that outlive the scan that built
+     * them (watched trees). Closing the budget later releases the heap.
+     */
+    public void releaseScanSlot() {
+        if (governor != null) {
+            governor.releaseSlot(this);
+        }
+    }
+
+    long getLimit() {
+        return limit;
+    }
+
+    public void markDegraded() {
+        degraded = true;
+    }
+
+    public boolean isDegraded() {
+        return degraded;
+    }
+
+    public void markTruncated() {
+        truncated = true;
+    }
+
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (!closed && governor != null) {
+            governor.release(this);
+        }
+        closed = true;
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.DuplicateFinder.service;
+
+import java.io.IOException;
+
+/**
+ * Thrown when a scan cannot be admitted because the global scan memory budget or the
+ * number of concurrent scans is exhausted.
+ */
+public class ScanRejectedException extends IOException {
+    public ScanRejectedException(String message) {
+        super(message);
+    }
+}
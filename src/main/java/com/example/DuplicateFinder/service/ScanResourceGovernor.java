@@ -0,0 +1,115 @@
+package com.example.DuplicateFinder.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps concurrent scans within a global heap budget. Scans are admitted while a scan slot is free
+ * and the budget is not used up, otherwise they queue for a while and are then rejected.
+ * Admitted scans reserve estimated heap through their {@link ScanBudget}; when the budget is in
+ * use, reservations block, which applies backpressure to the walker until other scans finish.
+ */
+@Service
+public class ScanResourceGovernor {
+    private static final Logger logger = LoggerFactory.getLogger(ScanResourceGovernor.class);
+
+    private final long globalBudget;
+    private final long perScanBudget;
+    private final Semaphore scanSlots;
+    private final long admissionTimeoutMillis;
+    private final long reserveTimeoutMillis;
+    private long reserved;
+
+    public ScanResourceGovernor(@Value("${duplicatefinder.scan.memory-budget-bytes:0}") long memoryBudgetBytes,
+                                @Value("${duplicatefinder.scan.max-concurrent-scans:2}") int maxConcurrentScans,
+                                @Value("${duplicatefinder.scan.admission-timeout-ms:30000}") long admissionTimeoutMillis,
+                                @Value("${duplicatefinder.scan.reserve-timeout-ms:5000}") long reserveTimeoutMillis) {
+        this.globalBudget = memoryBudgetBytes > 0 ? memoryBudgetBytes : Runtime.getRuntime().maxMemory() / 4;
+        this.scanSlots = new Semaphore(Math.max(1, maxConcurrentScans), true);
+        // A single scan may use the whole budget only when it runs alone.
+        this.perScanBudget = maxConcurrentScans > 1 ? globalBudget / 2 : globalBudget;
+        this.admissionTimeoutMillis = admissionTimeoutMillis;
+        this.reserveTimeoutMillis = reserveTimeoutMillis;
+        logger.info("Scan memory budget: {} bytes in total, {} bytes per scan, {} concurrent scans.",
+                globalBudget, perScanBudget, Math.max(1, maxConcurrentScans));
+    }
+
+    /**
+     * Admits a new scan, queueing for up to the admission timeout.
+     *
+     * @throws ScanRejectedException if no scan slot or budget became available in time.
+     */
+    public ScanBudget admit(String description) throws ScanRejectedException {
+        try {
+            if (!scanSlots.tryAcquire(admissionTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new ScanRejectedException("Too many scans are running. Please try again later.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ScanRejectedException("Interrupted while waiting for a scan slot.");
+        }
+
+        synchronized (this) {
+            long deadline = System.currentTimeMillis() + admissionTimeoutMillis;
+            while (reserved >= globalBudget) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0 || !await(remaining)) {
+                    scanSlots.release();
+                    throw new ScanRejectedException("The scan memory budget is used up. Please try again later.");
+                }
+            }
+            logger.info("Admitted scan of {} ({} of {} budget bytes in use).", description, reserved, globalBudget);
+        }
+        return new ScanBudget(this, perScanBudget);
+    }
+
+    synchronized boolean reserve(ScanBudget scan, long bytes) {
+        if (scan.released || scan.used + bytes > scan.getLimit()) {
+            return false;
+        }
+        long deadline = System.currentTimeMillis() + reserveTimeoutMillis;
+        while (reserved + bytes > globalBudget) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0 || !await(remaining)) {
+                return false;
+            }
+        }
+        reserved += bytes;
+        scan.used += bytes;
+        return true;
+    }
+
+    synchronized void releaseSlot(ScanBudget scan) {
+        if (scan.slotHeld) {
+            scan.slotHeld = false;
+            scanSlots.release();
+            notifyAll();
+        }
+    }
+
+    synchronized void release(ScanBudget scan) {
+        reserved -= scan.used;
+        scan.used = 0;
+        scan.released = true;
+        if (scan.slotHeld) {
+            scan.slotHeld = false;
+            scanSlots.release();
+        }
+        notifyAll();
+    }
+
+    private boolean await(long millis) {
+        try {
+            wait(millis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
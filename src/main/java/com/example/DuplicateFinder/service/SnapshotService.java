@@ -0,0 +1,404 @@
+package com.example.DuplicateFinder.service;
+
+import com.example.DuplicateFinder.dto.SnapshotDiff;
+import com.example.DuplicateFinder.dto.SnapshotSummary;
+import org.apache.commons.codec.DecoderException;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Persists completed scans as compact, memory-mappable snapshot files and diffs them without touching the disk
+ * that was scanned.
+ * <p>
+ * Layout (big-endian):
+ * <pre>
+ * header    magic "DFSNAP02", createdAt, fileCount, categoryCount, totalBytes, reclaimableBytes,
+ *           rootOffset, rootLength, scanTypeOffset, scanTypeLength, recordsOffset, categoriesOffset, stringsOffset
+ * records   one fixed-size record per file, sorted by the UTF-8 bytes of the path (the index is the path id):
+ *           pathOffset, pathLength, size, SHA-256 digest, category id, duplicate group id
+ * categories  (offset, length) per category name
+ * strings   UTF-8 bytes of the root, the scan type, the paths and the category names
+ * </pre>
+ * Category and group ids are -1 when a file has none. Files scanned without a content hash, such as archive
+ * entries that were never read, get an all-zero digest and are only compared by size. Digests are only comparable between snapshots of the
+ * same root and scan type, so {@link #diff(String, String)} refuses anything else.
+ */
+@Service
+public class SnapshotService {
+    private static final Logger logger = LoggerFactory.getLogger(SnapshotService.class);
+
+    private static final byte[] MAGIC = "DFSNAP02".getBytes(StandardCharsets.US_ASCII);
+    private static final int HEADER_SIZE = 8 + 8 + 4 + 4 + 8 + 8 + 8 + 4 + 8 + 4 + 8 + 8 + 8;
+    private static final int DIGEST_SIZE = 32;
+    // Stored for files scanned without a content hash; such files never form duplicate groups.
+    private static final byte[] NO_DIGEST = new byte[DIGEST_SIZE];
+    private static final int RECORD_SIZE = 8 + 4 + 8 + DIGEST_SIZE + 4 + 4;
+    private static final int CATEGORY_ENTRY_SIZE = 8 + 4;
+    private static final String EXTENSION = ".snap";
+    private static final String TEMP_EXTENSION = ".tmp";
+    private static final DateTimeFormatter ID_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS");
+
+    private final Path snapshotDirectory;
+    private final int keepPerRoot;
+
+    public SnapshotService(@Value("${duplicatefinder.snapshot.dir:./snapshots}") String snapshotDirectory,
+                           @Value("${duplicatefinder.snapshot.keep-per-root:20}") int keepPerRoot) {
+        this.snapshotDirectory = Paths.get(snapshotDirectory);
+        this.keepPerRoot = keepPerRoot;
+    }
+
+    /**
+     * Writes a snapshot of a completed scan. Duplicate groups are the files sharing a digest. Only the newest
+     * snapshots of each root are kept; older ones are deleted once the new one is in place.
+     *
+     * @param root            The scanned directory.
+     * @param scanType        The scan type that produced the hashes, such as EXACT or CHUNK.
+     * @param files           All files of the scan.
+     * @param categorizedApps The categorization result, category to paths.
+     * @return The id of the new snapshot.
+     */
+    public String saveSnapshot(String root, String scanType, List<FileHashInfo> files,
+                               Map<String, List<String>> categorizedApps) throws IOException {
+        Files.createDirectories(snapshotDirectory);
+        root = normalizeRoot(root);
+        LocalDateTime createdAt = LocalDateTime.now();
+
+        List<String> categories = new ArrayList<>(categorizedApps.keySet());
+        Map<String, Integer> categoryByPath = new HashMap<>();
+        for (int i = 0; i < categories.size(); i++) {
+            for (String path : categorizedApps.get(categories.get(i))) {
+                categoryByPath.put(path, i);
+            }
+        }
+
+        // 1. Sort by path bytes, so two snapshots can be merge-walked.
+        List<Entry> entries = files.stream()
+                .map(file -> new Entry(file.getPath().getBytes(StandardCharsets.UTF_8), file.getSize(), digestOf(file.getHash()),
+                        categoryByPath.getOrDefault(file.getPath(), -1)))
+                .sorted((a, b) -> Arrays.compareUnsigned(a.path, b.path))
+                .collect(Collectors.toList());
+
+        // 2. Number the duplicate groups and add up what they could reclaim.
+        Map<ByteBuffer, List<Entry>> byDigest = entries.stream()
+                .collect(Collectors.groupingBy(entry -> ByteBuffer.wrap(entry.digest)));
+        int groupCount = 0;
+        long totalBytes = 0;
+        long reclaimableBytes = 0;
+        for (Entry entry : entries) {
+            totalBytes += entry.size;
+            List<Entry> group = byDigest.get(ByteBuffer.wrap(entry.digest));
+            if (group.size() > 1 && entry.group < 0 && !Arrays.equals(entry.digest, NO_DIGEST)) {
+                for (Entry member : group) {
+                    member.group = groupCount;
+                }
+                groupCount++;
+                reclaimableBytes += entry.size * (group.size() - 1);
+            }
+        }
+
+        // 3. Write header, records, category table and strings in one pass.
+        byte[] rootBytes = root.getBytes(StandardCharsets.UTF_8);
+        byte[] scanTypeBytes = scanType.getBytes(StandardCharsets.UTF_8);
+        List<byte[]> categoryBytes = categories.stream().map(c -> c.getBytes(StandardCharsets.UTF_8)).collect(Collectors.toList());
+        long recordsOffset = HEADER_SIZE;
+        long categoriesOffset = recordsOffset + (long) entries.size() * RECORD_SIZE;
+        long stringsOffset = categoriesOffset + (long) categories.size() * CATEGORY_ENTRY_SIZE;
+
+        // The temp file's random suffix makes the id unique, so scans saved in the same millisecond never replace each other.
+        Path temp = Files.createTempFile(snapshotDirectory, "scan-" + ID_FORMAT.format(createdAt) + "-", TEMP_EXTENSION);
+        String tempName = temp.getFileName().toString();
+        String id = tempName.substring(0, tempName.length() - TEMP_EXTENSION.length());
+        Path target = snapshotDirectory.resolve(id + EXTENSION);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16))) {
+            out.write(MAGIC);
+            out.writeLong(createdAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+            out.writeInt(entries.size());
+            out.writeInt(categories.size());
+            out.writeLong(totalBytes);
+            out.writeLong(reclaimableBytes);
+            out.writeLong(0);
+            out.writeInt(rootBytes.length);
+            out.writeLong(rootBytes.length);
+            out.writeInt(scanTypeBytes.length);
+            out.writeLong(recordsOffset);
+            out.writeLong(categoriesOffset);
+            out.writeLong(stringsOffset);
+
+            long stringOffset = rootBytes.length + scanTypeBytes.length;
+            for (Entry entry : entries) {
+                out.writeLong(stringOffset);
+                out.writeInt(entry.path.length);
+                out.writeLong(entry.size);
+                out.write(entry.digest);
+                out.writeInt(entry.category);
+                out.writeInt(entry.group);
+                stringOffset += entry.path.length;
+            }
+            for (byte[] category : categoryBytes) {
+                out.writeLong(stringOffset);
+                out.writeInt(category.length);
+                stringOffset += category.length;
+            }
+
+            out.write(rootBytes);
+            out.write(scanTypeBytes);
+            for (Entry entry : entries) {
+                out.write(entry.path);
+            }
+            for (byte[] category : categoryBytes) {
+                out.write(category);
+            }
+        }
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+
+        logger.info("Saved {} snapshot {} of {} ({} files, {} duplicate groups).", scanType, id, root, entries.size(), groupCount);
+        pruneSnapshots(root);
+        return id;
+    }
+
+    /**
+     * Deletes all but the newest {@code keepPerRoot} snapshots of the directory. A limit of 0 or less keeps everything.
+     */
+    private void pruneSnapshots(String root) throws IOException {
+        if (keepPerRoot <= 0) {
+            return;
+        }
+        List<SnapshotSummary> snapshots = listSnapshots(root);
+        for (SnapshotSummary expired : snapshots.subList(Math.min(keepPerRoot, snapshots.size()), snapshots.size())) {
+            if (Files.deleteIfExists(resolve(expired.getId()))) {
+                logger.info("Deleted snapshot {} of {}; keeping the newest {}.", expired.getId(), root, keepPerRoot);
+            }
+        }
+    }
+
+    /**
+     * Lists stored snapshots, newest first, optionally only those of one scanned directory.
+     */
+    public List<SnapshotSummary> listSnapshots(String root) throws IOException {
+        if (!Files.isDirectory(snapshotDirectory)) {
+            return Collections.emptyList();
+        }
+        String wantedRoot = root == null ? null : normalizeRoot(root);
+        List<SnapshotSummary> summaries = new ArrayList<>();
+        try (Stream<Path> paths = Files.list(snapshotDirectory)) {
+            for (Path path : (Iterable<Path>) paths.filter(p -> p.getFileName().toString().endsWith(EXTENSION))::iterator) {
+                String id = path.getFileName().toString();
+                id = id.substring(0, id.length() - EXTENSION.length());
+                try {
+                    Snapshot snapshot = Snapshot.open(path);
+                    if (wantedRoot == null || wantedRoot.equals(snapshot.root)) {
+                        summaries.add(new SnapshotSummary(id, snapshot.root, snapshot.scanType,
+                                LocalDateTime.ofInstant(Instant.ofEpochMilli(snapshot.createdAt), ZoneId.systemDefault()),
+                                snapshot.fileCount, snapshot.totalBytes, snapshot.reclaimableBytes));
+                    }
+                } catch (IOException e) {
+                    logger.warn("Skipping unreadable snapshot {}: {}", path, e.getMessage());
+                }
+            }
+        }
+        summaries.sort(Comparator.comparing(SnapshotSummary::getCreatedAt).thenComparing(SnapshotSummary::getId).reversed());
+        return summaries;
+    }
+
+    /**
+     * Merge-walks two snapshots in path order, in time linear in their sizes.
+     *
+     * @throws IllegalArgumentException if an id is malformed, or the snapshots differ in root or scan type.
+     * @throws java.nio.file.NoSuchFileException if a snapshot does not exist.
+     */
+    public SnapshotDiff diff(String fromId, String toId) throws IOException {
+        Snapshot from = Snapshot.open(resolve(fromId));
+        Snapshot to = Snapshot.open(resolve(toId));
+        if (!from.root.equals(to.root)) {
+            throw new IllegalArgumentException("Snapshots are of different directories: " + from.root + " and " + to.root);
+        }
+        if (!from.scanType.equals(to.scanType)) {
+            throw new IllegalArgumentException("Snapshots are of different scan types: " + from.scanType + " and " + to.scanType);
+        }
+
+        List<String> added = new ArrayList<>();
+        List<String> removed = new ArrayList<>();
+        List<String> modified = new ArrayList<>();
+        List<String> newlyDuplicated = new ArrayList<>();
+        long addedBytes = 0;
+        long removedBytes = 0;
+
+        int i = 0;
+        int j = 0;
+        byte[] fromPath = from.fileCount > 0 ? from.path(0) : null;
+        byte[] toPath = to.fileCount > 0 ? to.path(0) : null;
+        while (fromPath != null || toPath != null) {
+            int order = fromPath == null ? 1 : toPath == null ? -1 : Arrays.compareUnsigned(fromPath, toPath);
+            if (order < 0) {
+                removed.add(new String(fromPath, StandardCharsets.UTF_8));
+                removedBytes += from.size(i);
+                fromPath = ++i < from.fileCount ? from.path(i) : null;
+            } else if (order > 0) {
+                String path = new String(toPath, StandardCharsets.UTF_8);
+                added.add(path);
+                addedBytes += to.size(j);
+                if (to.group(j) >= 0) {
+                    newlyDuplicated.add(path);
+                }
+                toPath = ++j < to.fileCount ? to.path(j) : null;
+            } else {
+                if (from.size(i) != to.size(j) || !from.sameDigest(i, to, j)) {
+                    modified.add(new String(toPath, StandardCharsets.UTF_8));
+                }
+                if (to.group(j) >= 0 && from.group(i) < 0) {
+                    newlyDuplicated.add(new String(toPath, StandardCharsets.UTF_8));
+                }
+                fromPath = ++i < from.fileCount ? from.path(i) : null;
+                toPath = ++j < to.fileCount ? to.path(j) : null;
+            }
+        }
+
+        return new SnapshotDiff(fromId, toId, added, removed, modified, newlyDuplicated, addedBytes, removedBytes,
+                to.totalBytes - from.totalBytes, to.reclaimableBytes - from.reclaimableBytes);
+    }
+
+    private Path resolve(String id) {
+        if (id == null || !id.matches("[A-Za-z0-9-]+")) {
+            throw new IllegalArgumentException("Invalid snapshot id: " + id);
+        }
+        return snapshotDirectory.resolve(id + EXTENSION);
+    }
+
+    private static String normalizeRoot(String root) {
+        return Paths.get(root).toAbsolutePath().normalize().toString();
+    }
+
+    /**
+     * EXACT digests are stored as raw bytes; anything else (FUZZY content, synthetic keys) is hashed first.
+     * Placeholders of unread archive entries say nothing about content, so they are stored as {@link #NO_DIGEST}.
+     */
+    private static byte[] digestOf(String hash) {
+        if (hash == null || hash.isEmpty() || hash.startsWith(ArchiveScanService.UNHASHED_PREFIX)) {
+            return NO_DIGEST;
+        }
+        if (hash.length() == DIGEST_SIZE * 2) {
+            try {
+                return Hex.decodeHex(hash);
+            } catch (DecoderException e) {
+                // Not a hex digest; fall through.
+            }
+        }
+        return DigestUtils.sha256(hash);
+    }
+
+    private static final class Entry {
+        private final byte[] path;
+        private final long size;
+        private final byte[] digest;
+        private final int category;
+        private int group = -1;
+
+        private Entry(byte[] path, long size, byte[] digest, int category) {
+            this.path = path;
+            this.size = size;
+            this.digest = digest;
+            this.category = category;
+        }
+    }
+
+    /**
+     * Read-only view of a mapped snapshot file.
+     */
+    private static final class Snapshot {
+        private final MappedByteBuffer buffer;
+        private final long createdAt;
+        private final int fileCount;
+        private final long totalBytes;
+        private final long reclaimableBytes;
+        private final String root;
+        private final String scanType;
+        private final int recordsOffset;
+        private final int stringsOffset;
+
+        private Snapshot(MappedByteBuffer buffer) throws IOException {
+            this.buffer = buffer;
+            byte[] magic = new byte[MAGIC.length];
+            buffer.get(0, magic);
+            if (!Arrays.equals(magic, MAGIC)) {
+                throw new IOException("Not a snapshot file, or written by an older version");
+            }
+            this.createdAt = buffer.getLong(8);
+            this.fileCount = buffer.getInt(16);
+            this.totalBytes = buffer.getLong(24);
+            this.reclaimableBytes = buffer.getLong(32);
+            this.recordsOffset = (int) buffer.getLong(64);
+            this.stringsOffset = (int) buffer.getLong(80);
+            this.root = string(buffer.getLong(40), buffer.getInt(48));
+            this.scanType = string(buffer.getLong(52), buffer.getInt(60));
+        }
+
+        private String string(long offset, int length) {
+            byte[] bytes = new byte[length];
+            buffer.get(stringsOffset + (int) offset, bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        private static Snapshot open(Path path) throws IOException {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                if (channel.size() > Integer.MAX_VALUE) {
+                    throw new IOException("Snapshot is too large to map: " + path);
+                }
+                // The mapping stays valid after the channel is closed.
+                return new Snapshot(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+            }
+        }
+
+        private int record(int index) {
+            return recordsOffset + index * RECORD_SIZE;
+        }
+
+        private byte[] path(int index) {
+            int record = record(index);
+            byte[] path = new byte[buffer.getInt(record + 8)];
+            buffer.get(stringsOffset + (int) buffer.getLong(record), path);
+            return path;
+        }
+
+        private long size(int index) {
+            return buffer.getLong(record(index) + 12);
+        }
+
+        /**
+         * @return False only if both files have a digest and the digests differ.
+         */
+        private boolean sameDigest(int index, Snapshot other, int otherIndex) {
+            ByteBuffer digest = buffer.slice(record(index) + 20, DIGEST_SIZE);
+            ByteBuffer otherDigest = other.buffer.slice(other.record(otherIndex) + 20, DIGEST_SIZE);
+            ByteBuffer none = ByteBuffer.wrap(NO_DIGEST);
+            return digest.equals(otherDigest) || digest.equals(none) || otherDigest.equals(none);
+        }
+
+        private int group(int index) {
+            return buffer.getInt(record(index) + 20 + DIGEST_SIZE + 4);
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.DuplicateFinder.service;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ArchiveScanServiceTests {
+
+    private final ReadScheduler readScheduler = new ReadScheduler(1, 1, 0);
+    private final ArchiveScanService service = new ArchiveScanService(readScheduler);
+
+    @TempDir
+    Path root;
+
+    @AfterEach
+    void shutdown() {
+        readScheduler.shutdown();
+    }
+
+    @Test
+    void tarEntriesWithLongNamesAndPaddingAreRead() throws IOException {
+        String longName = "deeply/nested/" + "directory-name/".repeat(10) + "report.txt";
+        ByteArrayOutputStream tar = new ByteArrayOutputStream();
+        // Sizes that are not multiples of 512 exercise the padding after each entry.
+        addEntry(tar, "first.txt", '0', "duplicate content");
+        addEntry(tar, "ignored-dir/", '5', "");
+        addEntry(tar, "././@LongLink", 'L', longName + "\0");
+        addEntry(tar, longName.substring(0, 99), '0', "duplicate content");
+        addEntry(tar, "last.bin", '0', "x".repeat(1000));
+        tar.write(new byte[1024]);
+        Path archive = root.resolve("bundle.tar");
+        Files.write(archive, tar.toByteArray());
+
+        FileHashInfo archiveFile = new FileHashInfo(archive.toString(), "bundle.tar", "", Files.size(archive), 0);
+        Map<String, FileHashInfo> entries = service.scanArchives(List.of(archiveFile), ScanBudget.unbounded()).stream()
+                .collect(Collectors.toMap(FileHashInfo::getPath, entry -> entry));
+
+        String prefix = archive + "!/";
+        assertEquals(Set.of(prefix + "first.txt", prefix + longName, prefix + "last.bin"), entries.keySet());
+        assertEquals(1000, entries.get(prefix + "last.bin").getSize());
+        // Same size and content: both are hashed, and only match if each entry's bytes were read in place.
+        String expected = DigestUtils.sha256Hex("duplicate content");
+        assertEquals(expected, entries.get(prefix + "first.txt").getHash());
+        assertEquals(expected, entries.get(prefix + longName).getHash());
+        assertEquals("report.txt", entries.get(prefix + longName).getFileName());
+    }
+
+    @Test
+    void corruptTarDoesNotFailTheOtherArchives() throws IOException {
+        ByteArrayOutputStream corrupt = new ByteArrayOutputStream();
+        // A long-name header claiming 8 GiB: it must be rejected, not buffered.
+        addHeader(corrupt, "././@LongLink", 'L', 077777777777L);
+        corrupt.write(new byte[1024]);
+        Path badTar = root.resolve("bad.tar");
+        Files.write(badTar, corrupt.toByteArray());
+
+        ByteArrayOutputStream good = new ByteArrayOutputStream();
+        addEntry(good, "kept.txt", '0', "content");
+        good.write(new byte[1024]);
+        Path goodTar = root.resolve("good.tar");
+        Files.write(goodTar, good.toByteArray());
+
+        List<FileHashInfo> entries = service.scanArchives(List.of(archive(badTar), archive(goodTar)), ScanBudget.unbounded());
+
+        assertEquals(List.of(goodTar + "!/kept.txt"), entries.stream().map(FileHashInfo::getPath).collect(Collectors.toList()));
+    }
+
+    @Test
+    void zipEntriesAreOnlyHashedWhenTheirSizeAndCrcMatch() throws IOException {
+        Path archive = root.resolve("bundle.zip");
+        try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(archive))) {
+            for (String[] entry : new String[][]{{"same-a.txt", "duplicate!"}, {"same-b.txt", "duplicate!"},
+                    {"other-a.txt", "aaaa"}, {"other-b.txt", "bbbb"}}) {
+                zip.putNextEntry(new ZipEntry(entry[0]));
+                zip.write(entry[1].getBytes(StandardCharsets.UTF_8));
+                zip.closeEntry();
+            }
+        }
+
+        Map<String, String> hashes = service.scanArchives(List.of(archive(archive)), ScanBudget.unbounded()).stream()
+                .collect(Collectors.toMap(FileHashInfo::getFileName, FileHashInfo::getHash));
+
+        String expected = DigestUtils.sha256Hex("duplicate!");
+        assertEquals(expected, hashes.get("same-a.txt"));
+        assertEquals(expected, hashes.get("same-b.txt"));
+        // Same size but different CRC32s: the central directory already tells them apart, so neither is read.
+        assertTrue(hashes.get("other-a.txt").startsWith(ArchiveScanService.UNHASHED_PREFIX));
+        assertTrue(hashes.get("other-b.txt").startsWith(ArchiveScanService.UNHASHED_PREFIX));
+    }
+
+    private static FileHashInfo archive(Path path) throws IOException {
+        return new FileHashInfo(path.toString(), path.getFileName().toString(), "", Files.size(path), 0);
+    }
+
+    private static void addEntry(ByteArrayOutputStream tar, String name, char type, String content) throws IOException {
+        byte[] data = content.getBytes(StandardCharsets.UTF_8);
+        addHeader(tar, name, type, data.length);
+        tar.write(data);
+        tar.write(new byte[(512 - data.length % 512) % 512]);
+    }
+
+    private static void addHeader(ByteArrayOutputStream tar, String name, char type, long length) throws IOException {
+        byte[] header = new byte[512];
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        System.arraycopy(nameBytes, 0, header, 0, Math.min(nameBytes.length, 100));
+        byte[] size = String.format("%011o", length).getBytes(StandardCharsets.US_ASCII);
+        System.arraycopy(size, 0, header, 124, size.length);
+        header[156] = (byte) type;
+        System.arraycopy("ustar\u000000".getBytes(StandardCharsets.US_ASCII), 0, header, 257, 8);
+        tar.write(header);
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.DuplicateFinder.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class BkTreeTests {
+
+    @Test
+    void searchMatchesBruteForce() {
+        Random random = new Random(42);
+        BkTree tree = new BkTree();
+        List<Long> values = new ArrayList<>();
+        // Clusters of near hashes plus unrelated ones, so queries hit both dense and sparse parts of the tree.
+        for (int i = 0; i < 3000; i++) {
+            long value = i % 3 == 0 || values.isEmpty()
+                    ? random.nextLong()
+                    : flipBits(values.get(random.nextInt(values.size())), random.nextInt(12), random);
+            if (tree.add(value) == values.size()) {
+                values.add(value);
+            }
+        }
+        assertEquals(values.size(), tree.size());
+
+        for (int query = 0; query < 200; query++) {
+            long probe = flipBits(values.get(random.nextInt(values.size())), random.nextInt(8), random);
+            for (int maxDistance : new int[]{0, 3, 10, 20}) {
+                Set<Long> expected = new HashSet<>();
+                for (long value : values) {
+                    if (Long.bitCount(value ^ probe) <= maxDistance) {
+                        expected.add(value);
+                    }
+                }
+                Set<Long> found = new HashSet<>();
+                for (int node : tree.search(probe, maxDistance)) {
+                    found.add(tree.value(node));
+                }
+                assertEquals(expected, found, "distance " + maxDistance);
+            }
+        }
+    }
+
+    @Test
+    void addingAnExistingHashReturnsItsNode() {
+        BkTree tree = new BkTree();
+        int first = tree.add(0xF0F0L);
+        tree.add(0x0F0FL);
+        assertEquals(first, tree.add(0xF0F0L));
+        assertEquals(2, tree.size());
+    }
+
+    private static long flipBits(long value, int count, Random random) {
+        for (int i = 0; i < count; i++) {
+            value ^= 1L << random.nextInt(64);
+        }
+        return value;
+    }
+}
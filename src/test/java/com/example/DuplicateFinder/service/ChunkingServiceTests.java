@@ -0,0 +1,73 @@
+package com.example.DuplicateFinder.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChunkingServiceTests {
+
+    @Test
+    void chunksStayWithinBounds() {
+        byte[] data = randomBytes(1 << 20, 1);
+        int offset = 0;
+        while (offset < data.length) {
+            int length = ChunkingService.findCutPoint(data, offset, data.length - offset);
+            boolean last = offset + length == data.length;
+            assertTrue(length <= 64 * 1024, "chunk longer than the maximum");
+            assertTrue(last || length >= 2 * 1024, "chunk shorter than the minimum");
+            offset += length;
+        }
+        assertEquals(data.length, offset);
+    }
+
+    @Test
+    void boundariesAfterAnInsertionAreUnchanged() {
+        byte[] original = randomBytes(1 << 20, 2);
+        int insertAt = 100_000;
+        byte[] inserted = randomBytes(37, 3);
+        byte[] edited = new byte[original.length + inserted.length];
+        System.arraycopy(original, 0, edited, 0, insertAt);
+        System.arraycopy(inserted, 0, edited, insertAt, inserted.length);
+        System.arraycopy(original, insertAt, edited, insertAt + inserted.length, original.length - insertAt);
+
+        Set<Integer> before = cutPoints(original);
+        Set<Integer> after = cutPoints(edited);
+
+        // Cuts before the edit are untouched, and cuts after it reappear shifted once the chunker resynchronizes.
+        int shiftedBeyond = 0;
+        int kept = 0;
+        for (int cut : before) {
+            if (cut <= insertAt) {
+                assertTrue(after.contains(cut), "cut before the insertion moved: " + cut);
+            } else if (cut > insertAt + 2 * 64 * 1024) {
+                shiftedBeyond++;
+                if (after.contains(cut + inserted.length)) {
+                    kept++;
+                }
+            }
+        }
+        assertTrue(shiftedBeyond > 50);
+        assertEquals(shiftedBeyond, kept, "boundaries far from the insertion should all survive");
+    }
+
+    private static Set<Integer> cutPoints(byte[] data) {
+        Set<Integer> cuts = new HashSet<>();
+        int offset = 0;
+        while (offset < data.length) {
+            offset += ChunkingService.findCutPoint(data, offset, data.length - offset);
+            cuts.add(offset);
+        }
+        return cuts;
+    }
+
+    private static byte[] randomBytes(int length, long seed) {
+        byte[] data = new byte[length];
+        new Random(seed).nextBytes(data);
+        return data;
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.DuplicateFinder.service;
+
+import com.example.DuplicateFinder.dto.DirectoryDuplicateGroup;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DirectoryHashingServiceTests {
+
+    private final ReadScheduler readScheduler = new ReadScheduler(1, 1, 0);
+    private final DirectoryHashingService service = new DirectoryHashingService(new FileHashingService(readScheduler, 3));
+
+    @TempDir
+    Path root;
+
+    @AfterEach
+    void shutdown() {
+        readScheduler.shutdown();
+    }
+
+    @Test
+    void nestedCopiesAreFoldedIntoTheOutermostCopy() throws IOException {
+        List<FileHashInfo> files = new ArrayList<>();
+        for (String copy : new String[]{"a/project", "b/project"}) {
+            files.add(write(copy + "/readme.txt", "readme"));
+            files.add(write(copy + "/src/Main.java", "class Main {}"));
+            files.add(write(copy + "/src/util/Util.java", "class Util {}"));
+        }
+        files.add(write("a/other.txt", "only in a"));
+
+        List<DirectoryDuplicateGroup> groups = service.findDuplicateDirectories(root.toString(), files);
+
+        assertEquals(1, groups.size(), "src and src/util must not be reported again beneath the copied project");
+        DirectoryDuplicateGroup group = groups.get(0);
+        assertEquals(List.of(root.resolve("a/project").toString(), root.resolve("b/project").toString()), group.getDirectories());
+        assertEquals(3, group.getFileCount());
+
+        List<List<FileHashInfo>> fileGroups = List.of(
+                List.of(files.get(0), files.get(3)),
+                List.of(files.get(1), files.get(4)));
+        assertTrue(service.suppressCoveredGroups(fileGroups, groups).isEmpty());
+    }
+
+    @Test
+    void directoriesWithUncheckedFilesAreNotOffered() throws IOException {
+        List<FileHashInfo> files = new ArrayList<>();
+        files.add(write("a/project/readme.txt", "readme"));
+        files.add(write("b/project/readme.txt", "readme"));
+        // Present on disk but not hashed, as after a truncated scan: its content is unknown.
+        write("b/project/unhashed.bin", "unknown");
+        write("a/project/unhashed.bin", "unknown");
+
+        assertTrue(service.findDuplicateDirectories(root.toString(), files).isEmpty());
+    }
+
+    @Test
+    void emptyFilesTakePartInTheDirectoryHash() throws IOException {
+        List<FileHashInfo> files = new ArrayList<>();
+        files.add(write("a/project/readme.txt", "readme"));
+        files.add(write("b/project/readme.txt", "readme"));
+        files.add(write("b/project/.keep", ""));
+
+        assertTrue(service.findDuplicateDirectories(root.toString(), files).isEmpty());
+    }
+
+    @Test
+    void directoryOfLinksIsNotACopyOfItsTargets() throws IOException {
+        List<FileHashInfo> files = new ArrayList<>();
+        files.add(write("z-real/data.txt", "the only copy"));
+        files.add(write("z-real/more.txt", "also real"));
+        Path links = Files.createDirectories(root.resolve("a-links"));
+        for (String name : new String[]{"data.txt", "more.txt"}) {
+            Path link = Files.createSymbolicLink(links.resolve(name), root.resolve("z-real").resolve(name));
+            // The scan follows links, so each link is listed with its target's content hash.
+            FileHashInfo target = files.stream().filter(file -> file.getFileName().equals(name)).findFirst().orElseThrow();
+            files.add(new FileHashInfo(link.toString(), name, target.getHash(), target.getSize(), target.getHashSize()));
+        }
+
+        assertTrue(service.findDuplicateDirectories(root.toString(), files).isEmpty());
+    }
+
+    @Test
+    void currentHashMatchesTheReportedGroupUntilTheCopyChanges() throws IOException {
+        List<FileHashInfo> files = new ArrayList<>();
+        for (String copy : new String[]{"a/project", "b/project"}) {
+            files.add(write(copy + "/readme.txt", "readme"));
+            files.add(write(copy + "/src/Main.java", "class Main {}"));
+        }
+        files.add(write("a/other.txt", "only in a"));
+        DirectoryDuplicateGroup group = service.findDuplicateDirectories(root.toString(), files).get(0);
+        Path copy = root.resolve("b/project");
+
+        assertEquals(group.getHash(), service.currentHash(copy));
+        // A file added after the scan would be deleted with the copy, so the copy no longer matches.
+        Files.writeString(copy.resolve("src/New.java"), "class New {}");
+        assertNotEquals(group.getHash(), service.currentHash(copy));
+        Files.delete(copy.resolve("src/New.java"));
+        Files.writeString(copy.resolve("readme.txt"), "edited");
+        assertNotEquals(group.getHash(), service.currentHash(copy));
+        assertNull(service.currentHash(root.resolve("missing")));
+    }
+
+    private FileHashInfo write(String relative, String content) throws IOException {
+        Path file = root.resolve(relative);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content);
+        String hash = DigestUtils.sha256Hex(content);
+        return new FileHashInfo(file.toString(), file.getFileName().toString(), hash, content.length(), hash.length());
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.DuplicateFinder.service;
+
+import com.example.DuplicateFinder.dto.WatchUpdate;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DirectoryWatchServiceTests {
+
+    private final ReadScheduler readScheduler = new ReadScheduler(1, 1, 0);
+    private final CountDownLatch releaseSlowScan = new CountDownLatch(1);
+    private final CountDownLatch slowScanStarted = new CountDownLatch(1);
+    private DirectoryWatchService service;
+
+    @TempDir
+    Path root;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        // Scans of any directory named "slow" block until the test lets them finish.
+        FileHashingService hashing = new FileHashingService(readScheduler, 3) {
+            @Override
+            public List<FileHashInfo> scanAndHashFiles(String pathString, ScanBudget budget) throws IOException {
+                if (Path.of(pathString).getFileName().toString().equals("slow")) {
+                    slowScanStarted.countDown();
+                    try {
+                        releaseSlowScan.await(30, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return super.scanAndHashFiles(pathString, budget);
+            }
+        };
+        service = new DirectoryWatchService(hashing, new CategorizationService(new ObjectMapper()),
+                new ScanResourceGovernor(0, 4, 1000, 1000));
+    }
+
+    @AfterEach
+    void shutdown() {
+        releaseSlowScan.countDown();
+        service.shutdown();
+        readScheduler.shutdown();
+    }
+
+    @Test
+    void createdAndDeletedFilesUpdateTheIndex() throws Exception {
+        Path watched = Files.createDirectory(root.resolve("watched"));
+        Files.writeString(watched.resolve("a.txt"), "same");
+        Files.writeString(watched.resolve("b.txt"), "same");
+
+        Map<String, Object> state = service.startWatching(watched.toString());
+        assertEquals(1, ((List<?>) state.get("duplicates")).size());
+        assertEquals(false, state.get("initializing"));
+
+        List<WatchUpdate> updates = new CopyOnWriteArrayList<>();
+        assertTrue(service.subscribe(watched.toString(), updates::add));
+        Files.writeString(watched.resolve("c.txt"), "same");
+        waitFor(() -> updates.stream().anyMatch(update -> update.getDuplicateGroups().values().stream()
+                .anyMatch(group -> group.size() == 3)));
+
+        Files.delete(watched.resolve("a.txt"));
+        waitFor(() -> updates.stream().anyMatch(update -> update.getRemovedFiles().contains(watched.resolve("a.txt").toString())));
+        assertEquals(2, ((List<List<?>>) service.getCurrentState(watched.toString()).get("duplicates")).get(0).size());
+    }
+
+    @Test
+    void otherTreesKeepUpdatingWhileANewTreeIsScanned() throws Exception {
+        Path fast = Files.createDirectory(root.resolve("fast"));
+        Files.writeString(fast.resolve("a.txt"), "same");
+        service.startWatching(fast.toString());
+        List<WatchUpdate> updates = new CopyOnWriteArrayList<>();
+        service.subscribe(fast.toString(), updates::add);
+
+        Path slow = Files.createDirectory(root.resolve("slow"));
+        Files.writeString(slow.resolve("kept.txt"), "kept");
+        Files.writeString(slow.resolve("deleted.txt"), "deleted");
+        CompletableFuture<Map<String, Object>> slowStart = CompletableFuture.supplyAsync(() -> {
+            try {
+                return service.startWatching(slow.toString());
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        assertTrue(slowScanStarted.await(10, TimeUnit.SECONDS));
+        assertEquals(true, service.getCurrentState(slow.toString()).get("initializing"));
+
+        // The watched tree is settled and hashed even though the slow tree's first scan has not finished.
+        Files.writeString(fast.resolve("b.txt"), "same");
+        waitFor(() -> updates.stream().anyMatch(update -> update.getDuplicateGroups().values().stream()
+                .anyMatch(group -> group.size() == 2)));
+        assertFalse(slowStart.isDone());
+
+        // A file deleted while the scan runs is not left in the index the scan builds.
+        Files.delete(slow.resolve("deleted.txt"));
+        Thread.sleep(500);
+        releaseSlowScan.countDown();
+        Map<String, Object> state = slowStart.get(10, TimeUnit.SECONDS);
+        assertEquals(false, state.get("initializing"));
+        assertEquals(1, state.get("watchedFiles"));
+    }
+
+    @Test
+    void treesCanBeStoppedWhileAnotherTreeIsScanned() throws Exception {
+        Path fast = Files.createDirectory(root.resolve("fast"));
+        service.startWatching(fast.toString());
+        Path slow = Files.createDirectory(root.resolve("slow"));
+        CompletableFuture.runAsync(() -> {
+            try {
+                service.startWatching(slow.toString());
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        assertTrue(slowScanStarted.await(10, TimeUnit.SECONDS));
+
+        assertTrue(CompletableFuture.supplyAsync(() -> service.stopWatching(fast.toString())).get(5, TimeUnit.SECONDS));
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 15_000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new AssertionError("Condition not met within 15 seconds");
+            }
+            Thread.sleep(50);
+        }
+    }
+}
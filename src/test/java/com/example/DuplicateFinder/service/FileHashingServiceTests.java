@@ -0,0 +1,120 @@
+package com.example.DuplicateFinder.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FileHashingServiceTests {
+
+    private static final int SIZE = 3 * (1 << 20) + 123;
+
+    private final ReadScheduler readScheduler = new ReadScheduler(1, 1, 0);
+    private final FileHashingService service = new FileHashingService(readScheduler, 3);
+
+    @TempDir
+    Path root;
+
+    @AfterEach
+    void shutdown() {
+        readScheduler.shutdown();
+    }
+
+    @Test
+    void comparedGroupsSplitWhereContentDiverges() throws IOException {
+        byte[] content = randomBytes(SIZE);
+        byte[] lastByteDiffers = content.clone();
+        lastByteDiffers[SIZE - 1] ^= 1;
+        byte[] secondBlockDiffers = content.clone();
+        secondBlockDiffers[(1 << 20) + 5] ^= 1;
+
+        // Three same-size groups of up to three files: one full match, one pair plus an outsider, and no match.
+        List<FileHashInfo> files = new ArrayList<>();
+        files.add(write("a/one", content));
+        files.add(write("a/two", content));
+        files.add(write("a/three", content));
+        byte[] other = randomBytes(SIZE + 1);
+        files.add(write("b/one", other));
+        files.add(write("b/two", other));
+        other[0] ^= 1;
+        files.add(write("b/three", other));
+        byte[] third = randomBytes(SIZE + 2);
+        files.add(write("c/one", third));
+        third[SIZE + 1] ^= 1;
+        files.add(write("c/two", third));
+
+        Set<Set<String>> groups = groups(service.findDuplicatesByComparison(files));
+
+        assertEquals(Set.of(paths("a/one", "a/two", "a/three"), paths("b/one", "b/two")), groups);
+
+        List<FileHashInfo> diverging = List.of(write("d/one", content), write("d/two", lastByteDiffers),
+                write("d/three", secondBlockDiffers));
+        assertTrue(service.findDuplicatesByComparison(diverging).isEmpty());
+    }
+
+    @Test
+    void filesThatChangedSinceListingAreNotMatched() throws IOException {
+        byte[] content = randomBytes(SIZE);
+        FileHashInfo first = write("one", content);
+        FileHashInfo second = write("two", content);
+        FileHashInfo grown = write("three", content);
+        // The third file grew after it was listed; its first SIZE bytes still equal the others.
+        byte[] appended = Arrays.copyOf(content, SIZE + 10);
+        Files.write(Path.of(grown.getPath()), appended);
+
+        Set<Set<String>> groups = groups(service.findDuplicatesByComparison(List.of(first, second, grown)));
+
+        assertEquals(Set.of(paths("one", "two")), groups);
+    }
+
+    @Test
+    void largeGroupsAreHashed() throws IOException {
+        byte[] content = randomBytes(4096);
+        List<FileHashInfo> files = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            files.add(write("copy" + i, content));
+        }
+
+        Map<String, List<FileHashInfo>> duplicates = service.findDuplicatesByComparison(files);
+
+        assertEquals(1, duplicates.size());
+        assertEquals(4, duplicates.values().iterator().next().size());
+        assertTrue(files.stream().noneMatch(file -> file.getHash().isEmpty()));
+    }
+
+    private static Set<Set<String>> groups(Map<String, List<FileHashInfo>> duplicates) {
+        return duplicates.values().stream()
+                .map(group -> group.stream().map(FileHashInfo::getPath).collect(Collectors.toSet()))
+                .collect(Collectors.toSet());
+    }
+
+    private Set<String> paths(String... names) {
+        return Arrays.stream(names).map(name -> root.resolve(name).toString()).collect(Collectors.toSet());
+    }
+
+    private FileHashInfo write(String relative, byte[] content) throws IOException {
+        Path file = root.resolve(relative);
+        Files.createDirectories(file.getParent());
+        Files.write(file, content);
+        return new FileHashInfo(file.toString(), file.getFileName().toString(), "", content.length, 0);
+    }
+
+    private static byte[] randomBytes(int length) {
+        byte[] data = new byte[length];
+        new Random(length).nextBytes(data);
+        return data;
+    }
+}
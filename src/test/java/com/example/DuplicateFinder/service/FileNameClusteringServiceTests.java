@@ -0,0 +1,142 @@
+package com.example.DuplicateFinder.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FileNameClusteringServiceTests {
+
+    private static final String[] WORDS = {"report", "invoice", "holiday", "photo", "budget", "notes", "draft",
+            "summary", "meeting", "project", "plan", "scan", "letter", "contract"};
+
+    private final ReadScheduler readScheduler = new ReadScheduler(1, 1, 0);
+    private final FileNameClusteringService service = new FileNameClusteringService(readScheduler);
+    private int nextFile;
+
+    @AfterEach
+    void shutdown() {
+        readScheduler.shutdown();
+    }
+
+    @Test
+    void prefixFilteredClustersMatchBruteForce() {
+        Random random = new Random(7);
+        List<FileHashInfo> files = new ArrayList<>();
+        for (int i = 0; i < 600; i++) {
+            files.add(file(randomName(random)));
+        }
+
+        for (double minSimilarity : new double[]{0.4, 0.6, 0.8}) {
+            Set<Set<String>> expected = bruteForce(files, minSimilarity);
+            Set<Set<String>> found = service.findSimilarNames(files, minSimilarity, FileNameClusteringService.CrossCheck.NONE)
+                    .stream()
+                    .map(group -> group.stream().map(FileHashInfo::getPath).collect(Collectors.toSet()))
+                    .collect(Collectors.toSet());
+            assertEquals(expected, found, "threshold " + minSimilarity);
+        }
+    }
+
+    @Test
+    void copiesClusterButNumberedFilesDoNot() {
+        List<FileHashInfo> files = List.of(file("report.pdf"), file("report (1).pdf"), file("Copy of report.pdf"),
+                file("report_final_v2.pdf"), file("IMG_0001.jpg"), file("IMG_0002.jpg"), file("IMG_0003.jpg"));
+
+        List<List<FileHashInfo>> groups = service.findSimilarNames(files, 0.6, FileNameClusteringService.CrossCheck.NONE);
+
+        assertEquals(1, groups.size());
+        assertEquals(4, groups.get(0).size());
+        assertTrue(groups.get(0).stream().allMatch(file -> file.getFileName().toLowerCase().contains("report")));
+    }
+
+    /**
+     * Compares every pair of distinct normalized names with the same criteria as the service.
+     */
+    private static Set<Set<String>> bruteForce(List<FileHashInfo> files, double minSimilarity) {
+        Map<String, List<String>> pathsByName = new HashMap<>();
+        for (FileHashInfo file : files) {
+            pathsByName.computeIfAbsent(FileNameClusteringService.normalize(file.getFileName()), k -> new ArrayList<>())
+                    .add(file.getPath());
+        }
+        List<String> names = new ArrayList<>(pathsByName.keySet());
+        int[] parent = new int[names.size()];
+        for (int i = 0; i < parent.length; i++) {
+            parent[i] = i;
+        }
+        for (int i = 0; i < names.size(); i++) {
+            for (int j = i + 1; j < names.size(); j++) {
+                String a = names.get(i);
+                String b = names.get(j);
+                if (jaccard(trigrams(a), trigrams(b)) >= minSimilarity && editSimilarity(a, b) >= minSimilarity
+                        && FileNameClusteringService.digitRuns(a).equals(FileNameClusteringService.digitRuns(b))) {
+                    parent[find(parent, i)] = find(parent, j);
+                }
+            }
+        }
+        Map<Integer, Set<String>> clusters = new HashMap<>();
+        for (int i = 0; i < names.size(); i++) {
+            clusters.computeIfAbsent(find(parent, i), k -> new HashSet<>()).addAll(pathsByName.get(names.get(i)));
+        }
+        return clusters.values().stream().filter(cluster -> cluster.size() > 1).collect(Collectors.toSet());
+    }
+
+    private static Set<String> trigrams(String name) {
+        String padded = "  " + name + " ";
+        Set<String> trigrams = new HashSet<>();
+        for (int k = 0; k + 3 <= padded.length(); k++) {
+            trigrams.add(padded.substring(k, k + 3));
+        }
+        return trigrams;
+    }
+
+    private static double jaccard(Set<String> a, Set<String> b) {
+        Set<String> shared = new HashSet<>(a);
+        shared.retainAll(b);
+        return (double) shared.size() / (a.size() + b.size() - shared.size());
+    }
+
+    private static double editSimilarity(String a, String b) {
+        int longest = Math.max(a.length(), b.length());
+        return longest == 0 ? 1.0 : 1.0 - (double) FileHashingService.calculateLevenshteinDistance(a, b) / longest;
+    }
+
+    private static int find(int[] parent, int node) {
+        while (parent[node] != node) {
+            node = parent[node];
+        }
+        return node;
+    }
+
+    // Two or three words, sometimes with a typo, a number or a copy marker, so many names are near each other.
+    private static String randomName(Random random) {
+        StringBuilder name = new StringBuilder(WORDS[random.nextInt(WORDS.length)]);
+        for (int words = random.nextInt(2); words >= 0; words--) {
+            name.append(random.nextBoolean() ? "_" : " ").append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        if (random.nextInt(4) == 0) {
+            int at = random.nextInt(name.length());
+            name.setCharAt(at, (char) ('a' + random.nextInt(26)));
+        }
+        if (random.nextInt(5) == 0) {
+            name.append(' ').append(2020 + random.nextInt(3));
+        }
+        if (random.nextInt(4) == 0) {
+            name.append(" (").append(1 + random.nextInt(3)).append(')');
+        }
+        return name + ".txt";
+    }
+
+    private FileHashInfo file(String name) {
+        return new FileHashInfo("/files/" + nextFile++ + "/" + name, name, "", 0, 0);
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.DuplicateFinder.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ImageHashingServiceTests {
+
+    private final ReadScheduler readScheduler = new ReadScheduler(1, 1, 0);
+    private final ImageHashingService service = new ImageHashingService(readScheduler);
+
+    @TempDir
+    Path root;
+
+    @TempDir
+    Path imageIoCache;
+
+    @AfterEach
+    void shutdown() throws IOException {
+        service.shutdown();
+        readScheduler.shutdown();
+        ImageIO.setCacheDirectory(null);
+    }
+
+    @Test
+    void resizedCopiesAreSimilarAndDecodedWithoutTempFiles() throws IOException {
+        BufferedImage original = gradient(256, 192, false);
+        ImageIO.write(original, "png", root.resolve("original.png").toFile());
+        ImageIO.write(scale(original, 128, 96), "jpg", root.resolve("small-copy.jpg").toFile());
+        ImageIO.write(gradient(256, 192, true), "png", root.resolve("different.png").toFile());
+        // A cache directory that is gone makes any disk-backed ImageIO stream fail, so decoding must stay in memory.
+        Path cache = Files.createDirectory(imageIoCache.resolve("cache"));
+        ImageIO.setCacheDirectory(cache.toFile());
+        Files.delete(cache);
+
+        List<FileHashInfo> images = service.scanAndHashImages(root.toString(), ScanBudget.unbounded());
+        List<List<FileHashInfo>> groups = service.findSimilarImages(images, 10);
+
+        assertEquals(3, images.size());
+        assertEquals(1, groups.size());
+        assertEquals(Set.of("original.png", "small-copy.jpg"),
+                groups.get(0).stream().map(FileHashInfo::getFileName).collect(Collectors.toSet()));
+    }
+
+    private static BufferedImage gradient(int width, int height, boolean vertical) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int shade = vertical ? y * 255 / height : (x * 255 / width + (y / 32) * 40) % 256;
+                image.setRGB(x, y, shade << 16 | shade << 8 | shade);
+            }
+        }
+        return image;
+    }
+
+    private static BufferedImage scale(BufferedImage image, int width, int height) {
+        BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = scaled.createGraphics();
+        graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        graphics.drawImage(image, 0, 0, width, height, null);
+        graphics.dispose();
+        return scaled;
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.DuplicateFinder.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReadSchedulerTests {
+
+    @TempDir
+    Path root;
+
+    @Test
+    void jobsRunInInodeOrderAndResultsKeepTheInputOrder() throws IOException {
+        ReadScheduler scheduler = new ReadScheduler(1, 1, 0);
+        try {
+            List<Path> paths = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                paths.add(Files.writeString(root.resolve("file-" + i + ".txt"), "content " + i));
+            }
+            List<Path> input = new ArrayList<>(paths);
+            Collections.reverse(input);
+            List<Path> started = new CopyOnWriteArrayList<>();
+
+            List<String> results = scheduler.schedule(input, path -> {
+                started.add(path);
+                // Null results and failed jobs are left out, as for unreadable files.
+                if (path.endsWith("file-3.txt")) {
+                    return null;
+                }
+                if (path.endsWith("file-4.txt")) {
+                    throw new IllegalStateException("unreadable");
+                }
+                return path.getFileName().toString();
+            });
+
+            // A single read thread makes the start order the submission order.
+            List<Path> byInode = new ArrayList<>(paths);
+            byInode.sort(Comparator.comparingLong(ReadSchedulerTests::inode).thenComparing(Path::toString));
+            assertEquals(byInode, started);
+            List<String> expected = input.stream()
+                    .map(path -> path.getFileName().toString())
+                    .filter(name -> !name.equals("file-3.txt") && !name.equals("file-4.txt"))
+                    .toList();
+            assertEquals(expected, results);
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+
+    @Test
+    void readsAreThrottledToTheConfiguredRate() throws IOException {
+        ReadScheduler scheduler = new ReadScheduler(1, 1, 1024 * 1024);
+        try {
+            Path file = Files.write(root.resolve("large.bin"), new byte[3 * 1024 * 1024]);
+
+            long start = System.nanoTime();
+            long read = 0;
+            try (InputStream is = scheduler.open(file)) {
+                byte[] buffer = new byte[64 * 1024];
+                for (int n; (n = is.read(buffer)) >= 0; ) {
+                    read += n;
+                }
+            }
+            long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+            // One second worth of bytes is available up front; the other two megabytes take about two seconds.
+            assertEquals(3 * 1024 * 1024, read);
+            assertTrue(elapsedMs >= 1500, "read 3 MiB at 1 MiB/s in " + elapsedMs + " ms");
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+
+    private static long inode(Path path) {
+        try {
+            return ((Number) Files.getAttribute(path, "unix:ino", LinkOption.NOFOLLOW_LINKS)).longValue();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
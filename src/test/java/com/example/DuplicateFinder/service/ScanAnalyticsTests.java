@@ -0,0 +1,88 @@
+package com.example.DuplicateFinder.service;
+
+import com.example.DuplicateFinder.dto.DirectoryRollup;
+import com.example.DuplicateFinder.dto.DuplicateGroupSummary;
+import com.example.DuplicateFinder.dto.HistogramBucket;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ScanAnalyticsTests {
+
+    private final Path root = Path.of("/scan").toAbsolutePath();
+
+    @Test
+    void topListsKeepOnlyTheLargestEntries() {
+        ScanAnalytics analytics = scan();
+
+        AnalyticsReport report = analytics.finish(false);
+
+        assertEquals(List.of(1000L, 300L), report.getLargestFiles().stream().map(FileHashInfo::getSize).toList());
+        assertEquals(List.of("h2", "h1"), report.getLargestDuplicateGroups().stream().map(DuplicateGroupSummary::getHash).toList());
+        assertEquals(List.of(path("b"), path("a")), report.getLargestDirectories().stream().map(DirectoryRollup::getDirectory).toList());
+        assertEquals(List.of(path("b"), path("a")),
+                report.getMostReclaimableDirectories().stream().map(DirectoryRollup::getDirectory).toList());
+    }
+
+    @Test
+    void directoryTotalsRollUpToEveryAncestor() {
+        AnalyticsReport report = scan().finish(true);
+
+        assertEquals(new DirectoryRollup(root.toString(), 2000, 8, 550), report.getRollup(root.toString()));
+        assertEquals(new DirectoryRollup(path("a"), 500, 3, 100), report.getRollup(path("a")));
+        assertEquals(new DirectoryRollup(path("a/deep"), 300, 1, 0), report.getRollup(path("a/deep")));
+        assertEquals(new DirectoryRollup(path("b"), 1450, 4, 450), report.getRollup(path("b")));
+        assertEquals(List.of(path("b"), path("a")),
+                report.getChildren(root.toString()).stream().map(DirectoryRollup::getDirectory).toList());
+        assertTrue(report.isTruncated());
+    }
+
+    @Test
+    void histogramsCountFilesAndBytes() {
+        AnalyticsReport report = scan().finish(false);
+
+        assertEquals(List.of(new HistogramBucket("[32, 64) B", 2, 100), new HistogramBucket("[64, 128) B", 3, 300),
+                        new HistogramBucket("[256, 512) B", 2, 600), new HistogramBucket("[512, 1024) B", 1, 1000)),
+                report.getSizeHistogram());
+        assertEquals(List.of(new HistogramBucket("bin", 1, 1000), new HistogramBucket("log", 2, 600),
+                        new HistogramBucket("txt", 5, 400)),
+                report.getExtensionHistogram());
+    }
+
+    private ScanAnalytics scan() {
+        ScanAnalytics analytics = new ScanAnalytics(root.toString(), 2);
+        FileHashInfo x = file("a/x.txt", 100);
+        FileHashInfo y = file("a/y.txt", 100);
+        FileHashInfo z = file("a/deep/z.log", 300);
+        FileHashInfo big = file("b/big.bin", 1000);
+        FileHashInfo xCopy = file("b/x-copy.txt", 100);
+        FileHashInfo zCopy = file("b/z-copy.log", 300);
+        FileHashInfo top = file("top.TXT", 50);
+        FileHashInfo topCopy = file("b/top-copy.txt", 50);
+        for (FileHashInfo file : List.of(x, y, z, big, xCopy, zCopy, top, topCopy)) {
+            analytics.accept(file);
+        }
+
+        Map<String, List<FileHashInfo>> duplicates = new LinkedHashMap<>();
+        duplicates.put("h1", List.of(x, y, xCopy));
+        duplicates.put("h2", List.of(z, zCopy));
+        duplicates.put("h3", List.of(top, topCopy));
+        analytics.recordDuplicates(duplicates);
+        return analytics;
+    }
+
+    private FileHashInfo file(String relative, long size) {
+        Path path = root.resolve(relative);
+        return new FileHashInfo(path.toString(), path.getFileName().toString(), "", size, 0);
+    }
+
+    private String path(String relative) {
+        return root.resolve(relative).toString();
+    }
+}
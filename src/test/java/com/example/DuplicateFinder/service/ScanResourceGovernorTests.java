@@ -0,0 +1,86 @@
+package com.example.DuplicateFinder.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ScanResourceGovernorTests {
+
+    @Test
+    void scansBeyondTheSlotLimitAreRejectedUntilOneFinishes() throws Exception {
+        ScanResourceGovernor governor = new ScanResourceGovernor(1000, 1, 100, 100);
+        ScanBudget first = governor.admit("first");
+
+        assertThrows(ScanRejectedException.class, () -> governor.admit("second"));
+        first.close();
+        governor.admit("second").close();
+    }
+
+    @Test
+    void scansAreRejectedWhileTheBudgetIsUsedUp() throws Exception {
+        ScanResourceGovernor governor = new ScanResourceGovernor(1000, 3, 100, 100);
+        ScanBudget first = governor.admit("first");
+        ScanBudget second = governor.admit("second");
+        assertTrue(first.reserve(500));
+        assertTrue(second.reserve(500));
+
+        assertThrows(ScanRejectedException.class, () -> governor.admit("third"));
+        first.close();
+        second.close();
+        governor.admit("third").close();
+    }
+
+    @Test
+    void reservationsStopAtTheScanLimitAndWaitForTheGlobalBudget() throws Exception {
+        ScanResourceGovernor governor = new ScanResourceGovernor(1000, 3, 100, 5000);
+        ScanBudget first = governor.admit("first");
+        ScanBudget second = governor.admit("second");
+        ScanBudget third = governor.admit("third");
+
+        // With several slots a scan gets half of the budget.
+        assertTrue(first.reserve(500));
+        assertFalse(first.reserve(1));
+        assertTrue(second.reserve(500));
+
+        // The global budget is used up: the reservation blocks until another scan returns its heap.
+        CompletableFuture<Boolean> waiting = CompletableFuture.supplyAsync(() -> third.reserve(100));
+        Thread.sleep(200);
+        assertFalse(waiting.isDone());
+        first.close();
+        assertTrue(waiting.get(5, TimeUnit.SECONDS));
+
+        second.close();
+        third.close();
+    }
+
+    @Test
+    void closedBudgetsRefuseReservations() throws Exception {
+        ScanResourceGovernor governor = new ScanResourceGovernor(1000, 2, 100, 100);
+        ScanBudget budget = governor.admit("scan");
+        assertTrue(budget.reserve(100));
+
+        budget.close();
+
+        assertFalse(budget.reserve(1));
+    }
+
+    @Test
+    void releasingTheSlotKeepsTheReservedHeap() throws Exception {
+        ScanResourceGovernor governor = new ScanResourceGovernor(1000, 1, 100, 100);
+        ScanBudget watched = governor.admit("watched tree");
+        assertTrue(watched.reserve(600));
+
+        // The slot is free for the next scan, but the index built by the first still holds its heap.
+        watched.releaseScanSlot();
+        ScanBudget next = governor.admit("next");
+        assertFalse(next.reserve(500));
+        watched.close();
+        assertTrue(next.reserve(500));
+        next.close();
+    }
+}
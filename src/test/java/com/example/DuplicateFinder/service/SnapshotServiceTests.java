@@ -0,0 +1,185 @@
+package com.example.DuplicateFinder.service;
+
+import com.example.DuplicateFinder.dto.SnapshotDiff;
+import com.example.DuplicateFinder.dto.SnapshotSummary;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SnapshotServiceTests {
+
+    @TempDir
+    Path snapshots;
+
+    @TempDir
+    Path scanned;
+
+    @Test
+    void headerPointsAtRootScanTypeRecordsAndStrings() throws IOException {
+        SnapshotService service = new SnapshotService(snapshots.toString(), 0);
+        List<FileHashInfo> files = List.of(file("b.txt", "same", 4), file("a.txt", "same", 4), file("c.txt", "other", 5));
+        String id = service.saveSnapshot(scanned.toString(), "EXACT", files, Map.of("Docs", List.of(path("a.txt"))));
+
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(snapshots.resolve(id + ".snap")));
+        byte[] magic = new byte[8];
+        buffer.get(0, magic);
+        assertEquals("DFSNAP02", new String(magic, StandardCharsets.US_ASCII));
+        assertEquals(3, buffer.getInt(16));
+        assertEquals(1, buffer.getInt(20));
+        assertEquals(13, buffer.getLong(24));
+        assertEquals(4, buffer.getLong(32));
+
+        long recordsOffset = buffer.getLong(64);
+        long categoriesOffset = buffer.getLong(72);
+        long stringsOffset = buffer.getLong(80);
+        int recordSize = 8 + 4 + 8 + 32 + 4 + 4;
+        assertEquals(88, recordsOffset);
+        assertEquals(recordsOffset + 3L * recordSize, categoriesOffset);
+        assertEquals(categoriesOffset + 12, stringsOffset);
+
+        assertEquals(scanned.toString(), string(buffer, stringsOffset, buffer.getLong(40), buffer.getInt(48)));
+        assertEquals("EXACT", string(buffer, stringsOffset, buffer.getLong(52), buffer.getInt(60)));
+
+        // Records are sorted by path, carry the raw digest and number the duplicate group.
+        int first = (int) recordsOffset;
+        assertEquals(path("a.txt"), string(buffer, stringsOffset, buffer.getLong(first), buffer.getInt(first + 8)));
+        assertEquals(4, buffer.getLong(first + 12));
+        byte[] digest = new byte[32];
+        buffer.get(first + 20, digest);
+        assertArrayEquals(DigestUtils.sha256("same"), digest);
+        assertEquals(0, buffer.getInt(first + 52));
+        assertEquals(0, buffer.getInt(first + 56));
+        int third = first + 2 * recordSize;
+        assertEquals(-1, buffer.getInt(third + 52));
+        assertEquals(-1, buffer.getInt(third + 56));
+
+        int category = (int) categoriesOffset;
+        assertEquals("Docs", string(buffer, stringsOffset, buffer.getLong(category), buffer.getInt(category + 8)));
+    }
+
+    @Test
+    void diffReportsChangesBetweenSnapshots() throws IOException, InterruptedException {
+        SnapshotService service = new SnapshotService(snapshots.toString(), 0);
+        List<FileHashInfo> before = List.of(file("kept.txt", "kept", 4), file("removed.txt", "gone", 4),
+                file("changed.txt", "old", 3), file("copy.txt", "unique", 6));
+        String fromId = service.saveSnapshot(scanned.toString(), "EXACT", before, Map.of());
+        Thread.sleep(5);
+        List<FileHashInfo> after = new ArrayList<>(List.of(file("kept.txt", "kept", 4), file("changed.txt", "newer", 5),
+                file("copy.txt", "unique", 6), file("added.txt", "unique", 6)));
+        String toId = service.saveSnapshot(scanned.toString(), "EXACT", after, Map.of());
+
+        SnapshotDiff diff = service.diff(fromId, toId);
+
+        assertEquals(List.of(path("added.txt")), diff.getAdded());
+        assertEquals(List.of(path("removed.txt")), diff.getRemoved());
+        assertEquals(List.of(path("changed.txt")), diff.getModified());
+        assertEquals(List.of(path("added.txt"), path("copy.txt")), diff.getNewlyDuplicated());
+        assertEquals(6, diff.getAddedBytes());
+        assertEquals(4, diff.getRemovedBytes());
+        assertEquals(4, diff.getTotalBytesDelta());
+        assertEquals(6, diff.getReclaimableBytesDelta());
+
+        List<SnapshotSummary> summaries = service.listSnapshots(scanned.toString());
+        assertEquals(List.of(toId, fromId), summaries.stream().map(SnapshotSummary::getId).toList());
+        assertEquals("EXACT", summaries.get(0).getScanType());
+    }
+
+    @Test
+    void unreadArchiveEntriesAreComparedBySizeOnly() throws IOException, InterruptedException {
+        SnapshotService service = new SnapshotService(snapshots.toString(), 0);
+        String entry = scanned.resolve("a.zip").toString() + "!/x.txt";
+        FileHashInfo unread = new FileHashInfo(entry, "x.txt", ArchiveScanService.UNHASHED_PREFIX + entry, 5, 0);
+        String fromId = service.saveSnapshot(scanned.toString(), "EXACT", List.of(unread), Map.of());
+        Thread.sleep(5);
+        // The same, unchanged entry is hashed in the next scan because another file now has its size.
+        String hash = DigestUtils.sha256Hex("hello");
+        List<FileHashInfo> after = List.of(new FileHashInfo(entry, "x.txt", hash, 5, hash.length()), file("other.txt", "hello", 5));
+        String toId = service.saveSnapshot(scanned.toString(), "EXACT", after, Map.of());
+
+        SnapshotDiff diff = service.diff(fromId, toId);
+
+        assertEquals(List.of(), diff.getModified());
+        assertEquals(List.of(path("other.txt")), diff.getAdded());
+    }
+
+    @Test
+    void diffRefusesDifferentScanTypes() throws IOException, InterruptedException {
+        SnapshotService service = new SnapshotService(snapshots.toString(), 0);
+        String exact = service.saveSnapshot(scanned.toString(), "EXACT", List.of(file("a.txt", "a", 1)), Map.of());
+        Thread.sleep(5);
+        String chunk = service.saveSnapshot(scanned.toString(), "CHUNK", List.of(file("a.txt", "a", 1)), Map.of());
+
+        assertThrows(IllegalArgumentException.class, () -> service.diff(exact, chunk));
+    }
+
+    @Test
+    void onlyTheNewestSnapshotsOfARootAreKept() throws IOException, InterruptedException {
+        SnapshotService service = new SnapshotService(snapshots.toString(), 2);
+        List<FileHashInfo> files = List.of(file("a.txt", "a", 1));
+        String other = service.saveSnapshot(snapshots.toString(), "EXACT", files, Map.of());
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            ids.add(service.saveSnapshot(scanned.toString(), "EXACT", files, Map.of()));
+            Thread.sleep(5);
+        }
+
+        assertEquals(List.of(ids.get(3), ids.get(2)),
+                service.listSnapshots(scanned.toString()).stream().map(SnapshotSummary::getId).toList());
+        assertEquals(List.of(other), service.listSnapshots(snapshots.toString()).stream().map(SnapshotSummary::getId).toList());
+    }
+
+    @Test
+    void snapshotsSavedTogetherGetDistinctIds() throws Exception {
+        SnapshotService service = new SnapshotService(snapshots.toString(), 0);
+        List<FileHashInfo> files = List.of(file("a.txt", "a", 1));
+        List<CompletableFuture<String>> saves = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            saves.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return service.saveSnapshot(scanned.toString(), "EXACT", files, Map.of());
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            }));
+        }
+        Set<String> ids = new HashSet<>();
+        for (CompletableFuture<String> save : saves) {
+            ids.add(save.get(10, TimeUnit.SECONDS));
+        }
+
+        assertEquals(8, ids.size());
+        assertEquals(8, service.listSnapshots(scanned.toString()).size());
+    }
+
+    private FileHashInfo file(String name, String content, long size) {
+        String hash = DigestUtils.sha256Hex(content);
+        return new FileHashInfo(path(name), name, hash, size, hash.length());
+    }
+
+    private String path(String name) {
+        return scanned.resolve(name).toString();
+    }
+
+    private static String string(ByteBuffer buffer, long stringsOffset, long offset, int length) {
+        byte[] bytes = new byte[length];
+        buffer.get((int) (stringsOffset + offset), bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}